@@ -0,0 +1,71 @@
+package com.example.control;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Reads a book one line at a time through a fixed char buffer, reusing the same line builder.
+// Lines end like in Files.readAllLines (\n, \r or \r\n) and malformed UTF-8 is still an error.
+public class BookLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+
+    public BookLineReader(Path path) throws IOException {
+        this.reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8.newDecoder());
+    }
+
+    // Returns the next line without its terminator, or null at the end of the book.
+    // The returned sequence is only valid until the next call.
+    public CharSequence readLine() throws IOException {
+        line.setLength(0);
+        boolean readAny = false;
+
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, BUFFER_SIZE);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return readAny ? line : null;
+                }
+            }
+
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+
+            int start = position;
+            while (position < limit && buffer[position] != '\n' && buffer[position] != '\r') {
+                position++;
+            }
+            line.append(buffer, start, position - start);
+            readAny = true;
+
+            if (position < limit) {
+                skipLineFeed = buffer[position] == '\r';
+                position++;
+                return line;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
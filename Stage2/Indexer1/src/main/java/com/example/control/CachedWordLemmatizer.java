@@ -0,0 +1,39 @@
+package com.example.control;
+
+import com.example.interfaces.WordLemmatizer;
+import com.example.model.LemmaCache;
+
+import java.util.List;
+
+public class CachedWordLemmatizer implements WordLemmatizer {
+
+    private final WordLemmatizer delegate;
+    private final LemmaCache cache;
+
+    public CachedWordLemmatizer(WordLemmatizer delegate, LemmaCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String lemmatize(String word) {
+        if (word.isEmpty()) {
+            return word;
+        }
+
+        // The delegate lowercases before annotating, so the lowercase form is a safe key
+        String key = word.toLowerCase();
+        String lemma = cache.get(key);
+        if (lemma == null) {
+            lemma = delegate.lemmatize(key);
+            cache.put(key, lemma);
+        }
+        return lemma;
+    }
+
+    // Lemmas annotated in context depend on the surrounding words, so they bypass the cache
+    @Override
+    public List<String> lemmatizeAll(List<String> words) {
+        return delegate.lemmatizeAll(words);
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.control;
+
+import com.example.interfaces.DeltaLogManager;
+import com.example.interfaces.IndexSink;
+import com.example.interfaces.JsonFileManager;
+import com.example.interfaces.SegmentFileManager;
+import com.example.model.BookAllocation;
+import com.example.model.Position;
+import com.example.model.StorageFormat;
+import com.example.model.Word;
+import com.example.model.WordPostings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+// The Indexer1 datamart: one JSON (or .seg) file per word with every position of the word,
+// or the same postings appended to .shard files, optionally through delta logs.
+public class DatamartIndexSink implements IndexSink {
+
+    // Words that cannot be file names on Windows, left out of both datamarts
+    static final Set<String> RESERVED_WINDOWS_WORDS = Set.of(
+            "con", "prn", "aux", "nul",
+            "com1", "com2", "com3", "com4", "com5", "com6", "com7", "com8", "com9",
+            "lpt1", "lpt2", "lpt3", "lpt4", "lpt5", "lpt6", "lpt7", "lpt8", "lpt9"
+    );
+
+    private final JsonFileManager jsonFileManager;
+    private final SegmentFileManager segmentFileManager;
+    private final DeltaLogManager deltaLogManager;
+    private final String datamartDirectory;
+    private final long maxBufferedPositions;
+    private final StorageFormat storageFormat;
+    private final boolean deltaLog;
+    private final Map<String, WordPostings> buffer = new HashMap<>();
+    private final Object compactionLock = new Object();
+    // Shards appended to since the last compact()
+    private final Set<Path> appendedShards = new HashSet<>();
+
+    public DatamartIndexSink(String datamartDirectory, long maxBufferedPositions,
+                             StorageFormat storageFormat, boolean deltaLog) {
+        this.jsonFileManager = new JsonFileManagerControl();
+        this.segmentFileManager = new SegmentFileManagerControl();
+        this.deltaLogManager = new DeltaLogManagerControl(datamartDirectory + "_deltas");
+        this.datamartDirectory = datamartDirectory;
+        this.maxBufferedPositions = maxBufferedPositions;
+        this.storageFormat = storageFormat;
+        this.deltaLog = deltaLog;
+    }
+
+    @Override
+    public void addBook(int bookId, Map<String, WordPostings> bookWords) {
+        // Merged into postings of its own, the book's postings are shared with the other sinks
+        for (WordPostings bookWord : bookWords.values()) {
+            buffer.computeIfAbsent(bookWord.getWord(), WordPostings::new).addAll(bookWord);
+        }
+    }
+
+    // Only shards are changed in place, JSON and segment files are replaced whole by a rename
+    // and delta logs are new files, and merging the same postings twice changes nothing
+    @Override
+    public Map<Path, Long> pendingWrites() throws IOException {
+        Map<Path, Long> writes = new HashMap<>();
+        if (deltaLog || storageFormat != StorageFormat.SHARDED) {
+            return writes;
+        }
+        for (String word : buffer.keySet()) {
+            String wordText = word.toLowerCase();
+            if (!RESERVED_WINDOWS_WORDS.contains(wordText)) {
+                ShardFile shard = ShardFile.forWord(datamartDirectory, wordText);
+                if (!writes.containsKey(shard.getPath())) {
+                    writes.put(shard.getPath(), shard.getAppendOffset());
+                }
+            }
+        }
+        return writes;
+    }
+
+    // Writes every buffered word to the datamart, touching each word file once
+    @Override
+    public void flush() throws IOException {
+        if (deltaLog) {
+            // Only the new postings are written here, compactDeltaLog() merges them into the datamart
+            if (!buffer.isEmpty()) {
+                deltaLogManager.appendDelta(buffer.values());
+            }
+        } else {
+            writeToDatamart(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void writeToDatamart(Map<String, WordPostings> postings) throws IOException {
+        if (storageFormat == StorageFormat.SHARDED) {
+            appendToShards(postings);
+        } else {
+            for (WordPostings wordPostings : postings.values()) {
+                saveOrUpdateWord(wordPostings);
+            }
+        }
+    }
+
+    // Merges the pending delta logs into the datamart, oldest first, each word file touched once
+    // per group of logs. A log is deleted only after its postings are written, so a crash replays it:
+    // JSON and segment merges deduplicate positions, but shard appends would add them a second time,
+    // which is why Main never combines delta logs with SHARDED.
+    public void compactDeltaLog() throws IOException {
+        synchronized (compactionLock) {
+            List<Path> deltas = deltaLogManager.listDeltas();
+            Map<String, WordPostings> merged = new HashMap<>();
+            List<Path> mergedDeltas = new ArrayList<>();
+            long mergedPositions = 0;
+
+            for (Path delta : deltas) {
+                for (WordPostings postings : deltaLogManager.readDelta(delta)) {
+                    WordPostings existing = merged.putIfAbsent(postings.getWord(), postings);
+                    if (existing != null) {
+                        existing.addAll(postings);
+                    }
+                    mergedPositions += postings.getTotal();
+                }
+                mergedDeltas.add(delta);
+
+                if (mergedPositions >= maxBufferedPositions) {
+                    compactGroup(merged, mergedDeltas);
+                    mergedPositions = 0;
+                }
+            }
+            compactGroup(merged, mergedDeltas);
+
+            if (!deltas.isEmpty()) {
+                System.out.println("Compacted " + deltas.size() + " delta logs into " + datamartDirectory);
+            }
+        }
+    }
+
+    private void compactGroup(Map<String, WordPostings> merged, List<Path> mergedDeltas) throws IOException {
+        writeToDatamart(merged);
+        for (Path delta : mergedDeltas) {
+            deltaLogManager.deleteDelta(delta);
+        }
+        merged.clear();
+        mergedDeltas.clear();
+        // Delta logs are merged outside the progress manifest groups, the shards can be rewritten here
+        compact();
+    }
+
+    // Rewrites the appended shards whose old term tables take more room than their postings,
+    // each word left with a single merged payload
+    @Override
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            int compacted = 0;
+            for (Path shard : appendedShards) {
+                if (new ShardFile(shard).compactIfWasteful(DatamartIndexSink::mergePostings)) {
+                    compacted++;
+                }
+            }
+            appendedShards.clear();
+            if (compacted > 0) {
+                System.out.println("Compacted " + compacted + " shard files in " + datamartDirectory);
+            }
+        }
+    }
+
+    // The WordPostings payloads of one word, merged book by book into a single payload
+    private static byte[] mergePostings(List<byte[]> payloads) throws IOException {
+        WordPostings merged = null;
+        for (byte[] payload : payloads) {
+            WordPostings postings = WordPostings.readFrom(new DataInputStream(new ByteArrayInputStream(payload)));
+            if (merged == null) {
+                merged = postings;
+            } else {
+                merged.addAll(postings);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            merged.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    public long pendingDeltaBytes() throws IOException {
+        return deltaLogManager.pendingBytes();
+    }
+
+    // Groups the buffered words by prefix so every shard file is opened and its term table rewritten once
+    private void appendToShards(Map<String, WordPostings> buffer) throws IOException {
+        Map<Path, Map<String, byte[]>> shards = new HashMap<>();
+        for (WordPostings postings : buffer.values()) {
+            String wordText = postings.getWord().toLowerCase();
+            if (RESERVED_WINDOWS_WORDS.contains(wordText)) {
+                // Not a file name here, but kept out so every storage format indexes the same words
+                System.out.println("Skipping reserved word: " + wordText);
+                continue;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                postings.writeTo(out);
+            }
+            shards.computeIfAbsent(ShardFile.forWord(datamartDirectory, wordText).getPath(), k -> new TreeMap<>())
+                    .put(postings.getWord(), bytes.toByteArray());
+        }
+        for (Map.Entry<Path, Map<String, byte[]>> shard : shards.entrySet()) {
+            new ShardFile(shard.getKey()).append(shard.getValue());
+            appendedShards.add(shard.getKey());
+        }
+    }
+
+    private void saveOrUpdateWord(WordPostings postings) throws IOException {
+        String wordText = postings.getWord().toLowerCase();
+
+        if (RESERVED_WINDOWS_WORDS.contains(wordText)) {
+            System.out.println("Skipping reserved word: " + wordText);
+            return;
+        }
+
+        String firstLetter = wordText.substring(0, 1);
+        String twoFirstsLetter = wordText.length() > 1 ? wordText.substring(0, 2) : firstLetter;
+
+        String directoryPath = datamartDirectory + "/" + firstLetter + "/" + twoFirstsLetter;
+        Files.createDirectories(Paths.get(directoryPath));
+
+        if (storageFormat == StorageFormat.SEGMENT) {
+            String segmentFilePath = directoryPath + "/" + postings.getWord() + ".seg";
+            WordPostings existingPostings = segmentFileManager.readSegment(segmentFilePath);
+
+            if (existingPostings != null) {
+                existingPostings.addAll(postings);
+                segmentFileManager.writeSegment(segmentFilePath, existingPostings);
+            } else {
+                segmentFileManager.writeSegment(segmentFilePath, postings);
+            }
+            return;
+        }
+
+        Word word = postings.toWord();
+        String jsonFilePath = directoryPath + "/" + word.getWord() + ".json";
+        Word existingWord = jsonFileManager.readJson(jsonFilePath);
+
+        if (existingWord != null) {
+            mergeWordData(existingWord, word);
+            jsonFileManager.writeJson(jsonFilePath, existingWord);
+        } else {
+            jsonFileManager.writeJson(jsonFilePath, word);
+        }
+    }
+
+
+    private void mergeWordData(Word existingWord, Word newWord) {
+        for (Map.Entry<String, BookAllocation> entry : newWord.getAllocations().entrySet()) {
+            String bookKey = entry.getKey();
+            BookAllocation newBookAllocation = entry.getValue();
+            BookAllocation previousAllocation = existingWord.getAllocations().get(bookKey);
+            int previousTimes = previousAllocation == null ? 0 : previousAllocation.getTimes();
+
+            BookAllocation mergedAllocation = existingWord.getAllocations().merge(bookKey, newBookAllocation, (existingAlloc, newAlloc) -> {
+                Set<Position> positionSet = new LinkedHashSet<>(existingAlloc.getPositions());
+                positionSet.addAll(newAlloc.getPositions());
+                existingAlloc.setPositions(new ArrayList<>(positionSet));
+                existingAlloc.setTimes(positionSet.size());
+                return existingAlloc;
+            });
+
+            // Only the positions the merge really added count towards the total
+            existingWord.setTotal(existingWord.getTotal() - previousTimes + mergedAllocation.getTimes());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.control;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Runs DatamartIndexSink.compactDeltaLog() in the background while books are being indexed:
+// every intervalSeconds, or as soon as the pending delta logs reach triggerBytes.
+public class DeltaCompactor {
+
+    private static final long CHECK_PERIOD_MILLIS = 1000;
+
+    private final DatamartIndexSink datamart;
+    private final long triggerBytes;
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+    private long lastCompaction;
+
+    public DeltaCompactor(DatamartIndexSink datamart, long triggerBytes, long intervalSeconds) {
+        this.datamart = datamart;
+        this.triggerBytes = triggerBytes;
+        this.intervalMillis = intervalSeconds > 0 ? TimeUnit.SECONDS.toMillis(intervalSeconds) : Long.MAX_VALUE;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "delta-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastCompaction = System.currentTimeMillis();
+        scheduler.scheduleWithFixedDelay(this::compactIfDue, CHECK_PERIOD_MILLIS, CHECK_PERIOD_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the schedule and compacts whatever is still pending, so the datamart is complete on return
+    public void stop() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        datamart.compactDeltaLog();
+    }
+
+    private void compactIfDue() {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - lastCompaction >= intervalMillis || datamart.pendingDeltaBytes() >= triggerBytes) {
+                datamart.compactDeltaLog();
+                lastCompaction = System.currentTimeMillis();
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting the delta logs:");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.control;
+
+import com.example.interfaces.DeltaLogManager;
+import com.example.model.WordPostings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// One delta-<millis>-<sequence>.log file per flushed batch: magic, version, word count,
+// the WordPostings of every word, CRC32. Files are renamed into place once complete,
+// so a listed delta is always whole, and names sort in the order the deltas were written.
+public class DeltaLogManagerControl implements DeltaLogManager {
+
+    private static final int MAGIC = 0x4931444C; // "I1DL"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 10;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final String EXTENSION = ".log";
+
+    private final Path directory;
+    private int sequence;
+
+    public DeltaLogManagerControl(String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    @Override
+    public synchronized void appendDelta(Collection<WordPostings> postings) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(postings.size());
+            for (WordPostings wordPostings : postings) {
+                wordPostings.writeTo(out);
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt((int) crc.getValue());
+        }
+
+        Files.createDirectories(directory);
+        String name = String.format("delta-%013d-%06d", System.currentTimeMillis(), sequence++ % 1_000_000);
+        Path tempPath = directory.resolve(name + ".tmp");
+        Files.write(tempPath, bytes.toByteArray());
+        Files.move(tempPath, directory.resolve(name + EXTENSION), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public List<Path> listDeltas() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public List<WordPostings> readDelta(Path deltaPath) throws IOException {
+        byte[] bytes = Files.readAllBytes(deltaPath);
+        if (bytes.length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("Truncated delta log: " + deltaPath);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " delta log: " + deltaPath);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - CHECKSUM_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(bytes.length - CHECKSUM_SIZE)) {
+            throw new IOException("Corrupt delta log (checksum mismatch): " + deltaPath);
+        }
+
+        int words = buffer.getInt(6);
+        List<WordPostings> postings = new ArrayList<>(words);
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE - CHECKSUM_SIZE))) {
+            for (int i = 0; i < words; i++) {
+                postings.add(WordPostings.readFrom(in));
+            }
+        }
+        return postings;
+    }
+
+    @Override
+    public void deleteDelta(Path deltaPath) throws IOException {
+        Files.deleteIfExists(deltaPath);
+    }
+
+    @Override
+    public long pendingBytes() throws IOException {
+        long bytes = 0;
+        for (Path delta : listDeltas()) {
+            bytes += Files.size(delta);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.control;
+
+import com.example.interfaces.WordLemmatizer;
+import com.example.model.LemmaTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Dictionary lemmatisation: words are looked up in a precomputed LemmaTable and only the ones it
+// does not know go to the fallback, usually CoreNLP, whose models are loaded on the first miss.
+// Lemmas come without POS context, which trades a little accuracy for much cheaper words.
+public class DictionaryWordLemmatizer implements WordLemmatizer {
+
+    private final LemmaTable table;
+    private final WordLemmatizer fallback;
+
+    public DictionaryWordLemmatizer(LemmaTable table, WordLemmatizer fallback) {
+        this.table = table;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String lemmatize(String word) {
+        if (word.isEmpty()) {
+            return word;
+        }
+        String lemma = table.get(word.toLowerCase());
+        return lemma != null ? lemma : fallback.lemmatize(word);
+    }
+
+    // A line with an unknown word is annotated as a whole by the fallback, keeping its context
+    @Override
+    public List<String> lemmatizeAll(List<String> words) {
+        List<String> lemmas = new ArrayList<>(words.size());
+        for (String word : words) {
+            String lemma = word.isEmpty() ? word : table.get(word.toLowerCase());
+            if (lemma == null) {
+                return fallback.lemmatizeAll(words);
+            }
+            lemmas.add(lemma);
+        }
+        return lemmas;
+    }
+}
@@ -1,139 +1,254 @@
 package com.example.control;
 
 import com.example.interfaces.*;
-import com.example.model.BookAllocation;
-import com.example.model.Position;
-import com.example.model.Word;
+import com.example.model.StorageFormat;
+import com.example.model.WordPostings;
 
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+// Tokenises and lemmatises every book once and fans its postings out to the sinks,
+// which decide how the index is stored (Indexer1 JSON datamart, Indexer2 TSV files, ...)
 public class IndexerControl implements BookIndexer {
 
+    private static final String BOOKS_DIRECTORY = "datalake/books";
+    private static final String DATAMART_DIRECTORY = "datamart/reverse_indexes_Indexer1";
+    private static final String LAST_BOOK_PATH = "resources/lastBookId_indexer1.txt";
+
     private final LastBookManager lastBookManager;
-    private final JsonFileManager jsonFileManager;
+    private final ProgressManifest progressManifest;
     private final WordCleaner wordCleaner;
-    private final WordLemmatizer wordLemmatizer;
+    // CoreNLP pipelines are not shared between workers, each thread gets its own lemmatizer
+    private final ThreadLocal<WordLemmatizer> wordLemmatizer;
+    private final String booksDirectory;
+    private final String lastBookPath;
+    private final int batchSize;
+    private final long maxBufferedPositions;
+    private final int threads;
+    private final boolean bulkAnnotation;
+    private final List<IndexSink> sinks;
 
     public IndexerControl() {
-        this.lastBookManager = new BookManagerControl();
-        this.jsonFileManager = new JsonFileManagerControl();
-        this.wordCleaner = new WordCleanerControl();
-        this.wordLemmatizer = new WordLemmatizerControl();
+        this(1, Long.MAX_VALUE, 1, WordLemmatizerControl::new, false,
+                List.of(new DatamartIndexSink(DATAMART_DIRECTORY, Long.MAX_VALUE, StorageFormat.JSON, false)));
     }
 
-    @Override
-    public void indexBook(int bookId) throws IOException {
-        String bookFilePath = "datalake/books/" + bookId + ".txt";
-
-        List<String> lines = Files.readAllLines(Paths.get(bookFilePath));
-        Map<String, Word> wordMap = new HashMap<>();
-
-        for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
-            String line = lines.get(lineNumber);
-            String[] words = line.split("\\s+");
+    public IndexerControl(int batchSize, long maxBufferedPositions, int threads,
+                          Supplier<WordLemmatizer> lemmatizerFactory, boolean bulkAnnotation,
+                          List<IndexSink> sinks) {
+        this(BOOKS_DIRECTORY, LAST_BOOK_PATH, batchSize, maxBufferedPositions, threads,
+                lemmatizerFactory, bulkAnnotation, sinks);
+    }
 
-            for (int position = 0; position < words.length; position++) {
-                String cleanedWord = wordCleaner.cleanWord(words[position]);
-                String lemma = wordLemmatizer.lemmatize(cleanedWord);
+    public IndexerControl(String booksDirectory, String datamartDirectory, String lastBookPath,
+                          int batchSize, long maxBufferedPositions, int threads,
+                          Supplier<WordLemmatizer> lemmatizerFactory, boolean bulkAnnotation,
+                          StorageFormat storageFormat, boolean deltaLog) {
+        this(booksDirectory, lastBookPath, batchSize, maxBufferedPositions, threads, lemmatizerFactory,
+                bulkAnnotation, List.of(new DatamartIndexSink(datamartDirectory, maxBufferedPositions,
+                        storageFormat, deltaLog)));
+    }
 
-                if (!lemma.isEmpty()) {
-                    Position pos = new Position(lineNumber + 1, position + 1);
-                    String bookKey = "BookID_" + bookId;
+    public IndexerControl(String booksDirectory, String lastBookPath,
+                          int batchSize, long maxBufferedPositions, int threads,
+                          Supplier<WordLemmatizer> lemmatizerFactory, boolean bulkAnnotation,
+                          List<IndexSink> sinks) {
+        this.lastBookManager = new BookManagerControl();
+        this.progressManifest = new ProgressManifestControl(
+                Paths.get(lastBookPath).resolveSibling("progress_indexer1").toString());
+        this.wordCleaner = new ScanningWordCleaner();
+        this.wordLemmatizer = ThreadLocal.withInitial(lemmatizerFactory);
+        this.booksDirectory = booksDirectory;
+        this.lastBookPath = lastBookPath;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBufferedPositions = maxBufferedPositions;
+        this.threads = Math.max(1, threads);
+        this.bulkAnnotation = bulkAnnotation;
+        this.sinks = List.copyOf(sinks);
+    }
 
-                    wordMap.computeIfAbsent(lemma, k -> new Word(lemma, new HashMap<>(), 0))
-                            .getAllocations()
-                            .computeIfAbsent(bookKey, k -> new BookAllocation(0, new ArrayList<>()))
-                            .getPositions().add(pos);
+    @Override
+    public void indexBook(int bookId) throws IOException {
+        progressManifest.recover();
+        addBook(bookId, collectBook(bookId));
+        commitBatch(List.of(bookId));
+    }
 
-                    wordMap.get(lemma).getAllocations().get(bookKey).setTimes(
-                            wordMap.get(lemma).getAllocations().get(bookKey).getTimes() + 1);
-                    wordMap.get(lemma).setTotal(wordMap.get(lemma).getTotal() + 1);
+    // Builds the postings of a single book in memory without touching the datamart
+    private Map<String, WordPostings> collectBook(int bookId) throws IOException {
+        String bookFilePath = booksDirectory + "/" + bookId + ".txt";
+
+        Map<String, WordPostings> wordMap = new HashMap<>();
+        WordLemmatizer lemmatizer = wordLemmatizer.get();
+        StringBuilder cleanedWord = new StringBuilder();
+        List<String> words = new ArrayList<>();
+
+        // Streamed line by line, so only the current line of the book is held in memory
+        try (BookLineReader reader = new BookLineReader(Paths.get(bookFilePath))) {
+            CharSequence line;
+            for (int lineNumber = 0; (line = reader.readLine()) != null; lineNumber++) {
+                splitAndClean(line, cleanedWord, words);
+                // Bulk mode annotates the whole line at once so the POS tagger sees every word in context
+                List<String> lineLemmas = bulkAnnotation ? lemmatizer.lemmatizeAll(words) : null;
+
+                for (int position = 0; position < words.size(); position++) {
+                    String lemma = bulkAnnotation ? lineLemmas.get(position) : lemmatizer.lemmatize(words.get(position));
+
+                    if (!lemma.isEmpty()) {
+                        wordMap.computeIfAbsent(lemma, WordPostings::new).add(bookId, lineNumber + 1, position + 1);
+                    }
                 }
             }
         }
 
-        for (String lemma : wordMap.keySet()) {
-            saveOrUpdateWord(wordMap.get(lemma));
+        // Buffered books only keep the varint-encoded positions
+        for (WordPostings postings : wordMap.values()) {
+            postings.freeze();
         }
+        return wordMap;
     }
 
-    private void saveOrUpdateWord(Word word) throws IOException {
-        String wordText = word.getWord().toLowerCase();
-
-        Set<String> reservedWindowsWords = Set.of(
-                "con", "prn", "aux", "nul",
-                "com1", "com2", "com3", "com4", "com5", "com6", "com7", "com8", "com9",
-                "lpt1", "lpt2", "lpt3", "lpt4", "lpt5", "lpt6", "lpt7", "lpt8", "lpt9"
-        );
-
-        if (reservedWindowsWords.contains(wordText)) {
-            System.out.println("Skipping reserved word: " + wordText);
+    // Cleans every word of the line into words, numbered exactly like line.split("\\s+") would
+    private void splitAndClean(CharSequence line, StringBuilder cleanedWord, List<String> words) {
+        words.clear();
+        int length = line.length();
+        if (length == 0) {
+            words.add("");
             return;
         }
 
-        String firstLetter = wordText.substring(0, 1);
-        String twoFirstsLetter = wordText.length() > 1 ? wordText.substring(0, 2) : firstLetter;
-
-        String directoryPath = "datamart/reverse_indexes_Indexer1/" + firstLetter + "/" + twoFirstsLetter;
-        Files.createDirectories(Paths.get(directoryPath));
-
-        String jsonFilePath = directoryPath + "/" + word.getWord() + ".json";
-        Word existingWord = jsonFileManager.readJson(jsonFilePath);
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            wordCleaner.cleanWord(line, start, i, cleanedWord);
+            words.add(cleanedWord.length() == 0 ? "" : cleanedWord.toString());
+        }
 
-        if (existingWord != null) {
-            mergeWordData(existingWord, word);
-            jsonFileManager.writeJson(jsonFilePath, existingWord);
-        } else {
-            jsonFileManager.writeJson(jsonFilePath, word);
+        // split keeps an empty first word when the line starts with whitespace
+        if (isWhitespace(line.charAt(0)) && !words.isEmpty()) {
+            words.add(0, "");
         }
     }
 
+    // The characters matched by the regex class \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
 
-    private void mergeWordData(Word existingWord, Word newWord) {
-        for (Map.Entry<String, BookAllocation> entry : newWord.getAllocations().entrySet()) {
-            String bookKey = entry.getKey();
-            BookAllocation newBookAllocation = entry.getValue();
-
-            existingWord.getAllocations().merge(bookKey, newBookAllocation, (existingAlloc, newAlloc) -> {
-                Set<Position> positionSet = new HashSet<>(existingAlloc.getPositions());
-                positionSet.addAll(newAlloc.getPositions());
-                existingAlloc.setPositions(new ArrayList<>(positionSet));
-                existingAlloc.setTimes(positionSet.size());
-                return existingAlloc;
-            });
+    // Hands one book to every sink and returns how many positions it holds
+    private long addBook(int bookId, Map<String, WordPostings> bookWords) throws IOException {
+        long positions = 0;
+        for (WordPostings bookWord : bookWords.values()) {
+            positions += bookWord.getTotal();
+        }
+        for (IndexSink sink : sinks) {
+            sink.addBook(bookId, bookWords);
+        }
+        return positions;
+    }
 
-            existingWord.setTotal(existingWord.getTotal() + newBookAllocation.getTimes());
+    // Flushes every sink as one group of the progress manifest: the books are marked completed only
+    // once all their postings are written, and a crash in between rolls the in-place writes back
+    private void commitBatch(List<Integer> bookIds) throws IOException {
+        Map<Path, Long> pendingWrites = new HashMap<>();
+        for (IndexSink sink : sinks) {
+            pendingWrites.putAll(sink.pendingWrites());
+        }
+        progressManifest.beginGroup(bookIds, pendingWrites);
+        for (IndexSink sink : sinks) {
+            sink.flush();
+        }
+        progressManifest.commitGroup(bookIds);
+        for (IndexSink sink : sinks) {
+            sink.compact();
         }
     }
 
     public void executeIndexing() throws IOException {
-        String lastBookPath = "resources/lastBookId_indexer1.txt";
+        progressManifest.recover();
+        // Checkpoint of the runs before the manifest existed, every book up to it is already indexed
         int lastProcessedBookId = lastBookManager.readLastProcessedBookId(lastBookPath);
 
-        Path booksDirectory = Paths.get("datalake/books");
-        try (Stream<Path> bookFiles = Files.list(booksDirectory)) {
-            bookFiles
-                    .filter(Files::isRegularFile)
-                    .filter(path -> path.getFileName().toString().matches("\\d+\\.txt"))
-                    .sorted(Comparator.comparingInt(path -> Integer.parseInt(path.getFileName().toString().replace(".txt", ""))))
-                    .filter(path -> Integer.parseInt(path.getFileName().toString().replace(".txt", "")) > lastProcessedBookId)
-                    .forEach(path -> {
+        // Books are tokenised and lemmatised on the workers, but merged and flushed on this
+        // thread in book id order, so the sinks need no locking and no update is lost
+        ExecutorService workers = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        Executor executor = workers != null ? workers : Runnable::run;
+        Deque<Map.Entry<Integer, CompletableFuture<Map<String, WordPostings>>>> inFlight = new ArrayDeque<>();
+
+        List<Integer> batch = new ArrayList<>();
+        long bufferedPositions = 0;
+
+        try {
+            Iterator<Integer> pendingBooks = listPendingBooks(lastProcessedBookId).iterator();
+            while (pendingBooks.hasNext() || !inFlight.isEmpty()) {
+                // Keep a bounded number of books queued ahead of the merge
+                while (pendingBooks.hasNext() && inFlight.size() < threads * 2) {
+                    int bookId = pendingBooks.next();
+                    inFlight.add(Map.entry(bookId, CompletableFuture.supplyAsync(() -> {
                         try {
-                            int bookId = Integer.parseInt(path.getFileName().toString().replace(".txt", ""));
-                            indexBook(bookId);
-                            lastBookManager.updateLastProcessedBookId(lastBookPath, bookId);
+                            return collectBook(bookId);
                         } catch (IOException e) {
-                            System.err.println("Error indexing book: " + path.getFileName());
-                            e.printStackTrace();
+                            throw new UncheckedIOException(e);
                         }
-                    });
+                    }, executor)));
+                }
+
+                Map.Entry<Integer, CompletableFuture<Map<String, WordPostings>>> next = inFlight.poll();
+                int bookId = next.getKey();
+                try {
+                    bufferedPositions += addBook(bookId, next.getValue().join());
+                    batch.add(bookId);
+                } catch (CompletionException e) {
+                    System.err.println("Error indexing book: " + bookId + ".txt");
+                    e.getCause().printStackTrace();
+                }
+
+                // A book that failed is not in the batch, so the next run tries it again
+                if (batch.size() >= batchSize || bufferedPositions >= maxBufferedPositions) {
+                    commitBatch(batch);
+                    batch = new ArrayList<>();
+                    bufferedPositions = 0;
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                commitBatch(batch);
+            }
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
         }
     }
-}
 
+    private List<Integer> listPendingBooks(int lastProcessedBookId) throws IOException {
+        try (Stream<Path> bookFiles = Files.list(Paths.get(booksDirectory))) {
+            return bookFiles
+                    .filter(Files::isRegularFile)
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.matches("\\d+\\.txt"))
+                    .map(name -> Integer.parseInt(name.replace(".txt", "")))
+                    .filter(bookId -> bookId > lastProcessedBookId && !progressManifest.isCompleted(bookId))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 public class JsonFileManagerControl implements JsonFileManager {
 
@@ -33,9 +35,12 @@ public class JsonFileManagerControl implements JsonFileManager {
     @Override
     public void writeJson(String filePath, Word word) throws IOException {
         File file = new File(filePath);
+        File tempFile = new File(filePath + ".tmp");
 
-        try (FileWriter writer = new FileWriter(file)) {
+        // Renamed over the old file once complete, a crash never leaves a half-written word
+        try (FileWriter writer = new FileWriter(tempFile)) {
             gson.toJson(word, writer);
         }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
     }
 }
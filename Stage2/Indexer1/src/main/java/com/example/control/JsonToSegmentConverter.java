@@ -0,0 +1,75 @@
+package com.example.control;
+
+import com.example.interfaces.JsonFileManager;
+import com.example.interfaces.SegmentFileManager;
+import com.example.model.Word;
+import com.example.model.WordPostings;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Rewrites every <word>.json of an existing Indexer1 datamart as a binary <word>.seg file.
+// Usage: JsonToSegmentConverter [jsonDatamart] [segmentDatamart], both default to the Indexer1 datamart.
+public class JsonToSegmentConverter {
+
+    private static final String DATAMART_DIRECTORY = "datamart/reverse_indexes_Indexer1";
+
+    private final JsonFileManager jsonFileManager;
+    private final SegmentFileManager segmentFileManager;
+
+    public JsonToSegmentConverter() {
+        this.jsonFileManager = new JsonFileManagerControl();
+        this.segmentFileManager = new SegmentFileManagerControl();
+    }
+
+    // Returns the number of converted words; unreadable files are reported and skipped
+    public int convert(String sourceDirectory, String targetDirectory) throws IOException {
+        Path source = Paths.get(sourceDirectory);
+        Path target = Paths.get(targetDirectory);
+
+        List<Path> jsonFiles;
+        try (Stream<Path> files = Files.walk(source)) {
+            jsonFiles = files
+                    .filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".json"))
+                    .collect(Collectors.toList());
+        }
+
+        int converted = 0;
+        for (Path jsonFile : jsonFiles) {
+            try {
+                Word word = jsonFileManager.readJson(jsonFile.toString());
+                if (word == null || word.getAllocations() == null) {
+                    continue;
+                }
+                String fileName = jsonFile.getFileName().toString();
+                Path segmentFile = target.resolve(source.relativize(jsonFile))
+                        .resolveSibling(fileName.substring(0, fileName.length() - ".json".length()) + ".seg");
+                Files.createDirectories(segmentFile.getParent());
+                segmentFileManager.writeSegment(segmentFile.toString(), WordPostings.fromWord(word));
+                converted++;
+            } catch (Exception e) {
+                System.err.println("Error converting file: " + jsonFile);
+                e.printStackTrace();
+            }
+        }
+        return converted;
+    }
+
+    public static void main(String[] args) {
+        String sourceDirectory = args.length > 0 ? args[0] : DATAMART_DIRECTORY;
+        String targetDirectory = args.length > 1 ? args[1] : sourceDirectory;
+        try {
+            int converted = new JsonToSegmentConverter().convert(sourceDirectory, targetDirectory);
+            System.out.println("Converted " + converted + " words to segments in " + targetDirectory);
+        } catch (IOException e) {
+            System.err.println("An error occurred during the conversion:");
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,16 +1,111 @@
 package com.example.control;
 
+import com.example.model.LemmaCache;
+import com.example.model.LemmaTable;
+import com.example.model.StorageFormat;
+
+import com.example.interfaces.IndexSink;
+import com.example.interfaces.WordLemmatizer;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 public class Main {
+    // Books whose postings are kept in memory before each word file is rewritten once
+    private static final int BATCH_SIZE = 50;
+    // Upper bound on buffered positions, flushes the batch early for very large books
+    private static final long MAX_BUFFERED_POSITIONS = 5_000_000;
+    // Worker threads that tokenise and lemmatise books concurrently, 1 keeps the sequential mode
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    // Distinct words whose lemma is remembered across books and workers
+    private static final int LEMMA_CACHE_SIZE = 500_000;
+    // Saved at the end of a run and loaded at startup, so later runs barely touch CoreNLP
+    private static final boolean PERSIST_LEMMA_CACHE = true;
+    private static final String LEMMA_CACHE_PATH = "resources/lemma_cache_indexer1.tsv";
+    // Looks lemmas up in a word<TAB>lemma table (a saved lemma cache works) before the cache and CoreNLP,
+    // whose models are then only loaded for words the table does not know
+    private static final boolean DICTIONARY_LEMMATIZER = false;
+    private static final String LEMMA_TABLE_PATH = "resources/lemma_table_indexer1.tsv";
+    // Annotates whole lines in one CoreNLP call instead of word by word (bypasses the lemma cache)
+    private static final boolean BULK_ANNOTATION = false;
+    // JSON keeps the datamart readable by JSONIndexLoader, SEGMENT writes binary .seg files per word
+    // and SHARDED appends the same postings to one .shard file per two-letter prefix
+    private static final StorageFormat STORAGE_FORMAT = StorageFormat.JSON;
+    // Batches go to append-only delta logs that a background compactor merges into the datamart;
+    // JSON and SEGMENT only, a delta replayed after a crash would be appended to a shard twice
+    private static final boolean DELTA_LOG = false;
+    private static final long COMPACTION_INTERVAL_SECONDS = 300;
+    private static final long COMPACTION_TRIGGER_BYTES = 64L * 1024 * 1024;
+    private static final String DATAMART_DIRECTORY = "datamart/reverse_indexes_Indexer1";
+    // Also writes a datamart in the Indexer2 TSV layout from the same tokenised books, so Indexer2 needs
+    // no run of its own once QueryEngine's TSV_DATAMART_DIRECTORY points here; kept apart from Indexer2's
+    // directory, which Indexer2 appends the same books to
+    private static final boolean TSV_SINK = false;
+    private static final String TSV_DATAMART_DIRECTORY = "datamart/reverse_indexes_Indexer1_tsv";
+    private static final boolean TSV_POSITIONAL_POSTINGS = false;
+
     public static void main(String[] args) {
-        IndexerControl indexer = new IndexerControl();
+        if (DELTA_LOG && STORAGE_FORMAT == StorageFormat.SHARDED) {
+            System.err.println("DELTA_LOG cannot be combined with the SHARDED storage format.");
+            return;
+        }
+        LemmaCache lemmaCache = new LemmaCache(LEMMA_CACHE_SIZE);
+        LemmaTable lemmaTable = DICTIONARY_LEMMATIZER ? loadLemmaTable() : null;
+        DatamartIndexSink datamart = new DatamartIndexSink(DATAMART_DIRECTORY, MAX_BUFFERED_POSITIONS,
+                STORAGE_FORMAT, DELTA_LOG);
+        List<IndexSink> sinks = new ArrayList<>();
+        sinks.add(datamart);
+        if (TSV_SINK) {
+            sinks.add(new TsvIndexSink(TSV_DATAMART_DIRECTORY, TSV_POSITIONAL_POSTINGS));
+        }
+        IndexerControl indexer = new IndexerControl(BATCH_SIZE, MAX_BUFFERED_POSITIONS, THREADS,
+                () -> {
+                    WordLemmatizer lemmatizer = new CachedWordLemmatizer(new WordLemmatizerControl(), lemmaCache);
+                    return lemmaTable != null ? new DictionaryWordLemmatizer(lemmaTable, lemmatizer) : lemmatizer;
+                }, BULK_ANNOTATION, sinks);
         try {
+            // "compact" only merges the pending delta logs, without indexing new books
+            if (args.length > 0 && args[0].equals("compact")) {
+                datamart.compactDeltaLog();
+                return;
+            }
+            if (PERSIST_LEMMA_CACHE) {
+                lemmaCache.load(LEMMA_CACHE_PATH);
+            }
+            DeltaCompactor compactor = null;
+            if (DELTA_LOG) {
+                compactor = new DeltaCompactor(datamart, COMPACTION_TRIGGER_BYTES, COMPACTION_INTERVAL_SECONDS);
+                compactor.start();
+            }
             indexer.executeIndexing();
+            if (compactor != null) {
+                compactor.stop();
+            }
             System.out.println("Indexing completed successfully.");
+            System.out.println(lemmaCache);
+            if (lemmaTable != null) {
+                System.out.println(lemmaTable);
+            }
+            if (PERSIST_LEMMA_CACHE) {
+                lemmaCache.save(LEMMA_CACHE_PATH);
+            }
         } catch (IOException e) {
             System.err.println("An error occurred during the indexing process:");
             e.printStackTrace();
         }
     }
+
+    private static LemmaTable loadLemmaTable() {
+        long start = System.nanoTime();
+        try {
+            LemmaTable lemmaTable = LemmaTable.load(LEMMA_TABLE_PATH);
+            System.out.println("Loaded " + lemmaTable.size() + " lemmas in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return lemmaTable;
+        } catch (IOException e) {
+            System.out.println("Error loading the lemma table: " + e.getMessage());
+            return LemmaTable.fromMap(new HashMap<>());
+        }
+    }
 }
@@ -0,0 +1,104 @@
+package com.example.control;
+
+import com.example.interfaces.WordCleaner;
+
+import java.text.Normalizer;
+
+// Single-pass equivalent of WordCleanerControl: no regex, and no intermediate strings.
+// Drops everything from the first apostrophe, keeps letters and folds them to ASCII via NFD.
+public class ScanningWordCleaner implements WordCleaner {
+
+    // ASCII letter left by NFD + ASCII filtering for each BMP letter, NO_FOLD when nothing is left
+    private static final char UNKNOWN = 0;
+    private static final char NO_FOLD = 1;
+    private static final char[] FOLDED = new char[Character.MAX_VALUE + 1];
+
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(StringBuilder::new);
+
+    public ScanningWordCleaner() {
+    }
+
+    @Override
+    public String cleanWord(String word) {
+        StringBuilder out = buffer.get();
+        cleanWord(word, 0, word.length(), out);
+        if (word.contentEquals(out)) {
+            // The word was already clean, no need for a copy
+            return word;
+        }
+        return out.toString();
+    }
+
+    @Override
+    public void cleanWord(CharSequence text, int start, int end, StringBuilder out) {
+        out.setLength(0);
+        int cut = apostropheCut(text, start, end);
+
+        for (int i = start; i < cut; i++) {
+            char c = text.charAt(i);
+            if (c < 128) {
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    out.append(c);
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < cut && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // No supplementary letter decomposes to ASCII, so the pair is always dropped
+                i++;
+            } else {
+                char folded = fold(c);
+                if (folded != NO_FOLD) {
+                    out.append(folded);
+                }
+            }
+        }
+    }
+
+    static char fold(char c) {
+        char folded = FOLDED[c];
+        if (folded == UNKNOWN) {
+            folded = NO_FOLD;
+            if (Character.isLetter(c)) {
+                String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                for (int i = 0; i < decomposed.length(); i++) {
+                    if (decomposed.charAt(i) < 128) {
+                        folded = decomposed.charAt(i);
+                        break;
+                    }
+                }
+            }
+            FOLDED[c] = folded;
+        }
+        return folded;
+    }
+
+    // Where "['’].*$" starts matching: the first apostrophe with no line terminator after it,
+    // except one that ends the word ('.' stops at line terminators, '$' may precede a final one)
+    private static int apostropheCut(CharSequence text, int start, int end) {
+        int limit = end;
+        if (limit > start && isLineTerminator(text.charAt(limit - 1))) {
+            limit--;
+            if (limit > start && text.charAt(limit) == '\n' && text.charAt(limit - 1) == '\r') {
+                limit--;
+            }
+        }
+
+        int from = start;
+        for (int i = limit - 1; i >= start; i--) {
+            if (isLineTerminator(text.charAt(i))) {
+                from = i + 1;
+                break;
+            }
+        }
+
+        for (int i = from; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\'' || c == '’') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.control;
+
+import com.example.interfaces.SegmentFileManager;
+import com.example.model.WordPostings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+// Binary posting segment of one word:
+// magic, version, WordPostings.writeTo payload (int book ids, varint position blocks), CRC32 of all previous bytes
+public class SegmentFileManagerControl implements SegmentFileManager {
+
+    public static final int MAGIC = 0x49315347; // "I1SG"
+    public static final short VERSION = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final int CHECKSUM_SIZE = 4;
+
+    public SegmentFileManagerControl() {
+    }
+
+    @Override
+    public WordPostings readSegment(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            return null;
+        }
+
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("Truncated segment file: " + filePath);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a segment file: " + filePath);
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported segment version " + buffer.getShort(4) + ": " + filePath);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - CHECKSUM_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(bytes.length - CHECKSUM_SIZE)) {
+            throw new IOException("Corrupt segment file (checksum mismatch): " + filePath);
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE - CHECKSUM_SIZE))) {
+            return WordPostings.readFrom(in);
+        }
+    }
+
+    @Override
+    public void writeSegment(String filePath, WordPostings postings) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            postings.writeTo(out);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt((int) crc.getValue());
+        }
+
+        // Written next to the target and renamed, so a crash never leaves a half-written segment
+        Path path = Paths.get(filePath);
+        Path tempPath = Paths.get(filePath + ".tmp");
+        Files.write(tempPath, bytes.toByteArray());
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.control;
+
+import com.example.interfaces.IndexSink;
+import com.example.model.PositionList;
+import com.example.model.WordPostings;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+// The Indexer2 datamart layout: one <c>/<cc>/<word>.tsv file per word in TsvRowFormat,
+// with the Positions column of Indexer2's positional postings when asked for.
+// Rows of a batch are kept per word, so each word file is opened once per flush and, unlike
+// Indexer2 that writes book by book, no writers need to stay open in between.
+// The directory must not be Indexer2's own datamart: the two indexers track their progress
+// separately, so both would append the same books.
+public class TsvIndexSink implements IndexSink {
+
+    private final String datamartDirectory;
+    private final boolean positionalPostings;
+    private final Map<String, StringBuilder> rows = new HashMap<>();
+    // Words whose existing file had the header of the current mode
+    private final Set<String> checkedFiles = new HashSet<>();
+
+    public TsvIndexSink(String datamartDirectory, boolean positionalPostings) {
+        this.datamartDirectory = datamartDirectory;
+        this.positionalPostings = positionalPostings;
+    }
+
+    @Override
+    public void addBook(int bookId, Map<String, WordPostings> bookWords) {
+        for (WordPostings postings : bookWords.values()) {
+            StringBuilder wordRows = rows.computeIfAbsent(postings.getWord(), k -> new StringBuilder());
+            for (int i = 0; i < postings.getBookCount(); i++) {
+                appendRows(wordRows, postings.getBookId(i), postings.getPositions(i));
+            }
+        }
+    }
+
+    // Positions come in line order, so the word offsets of a line are consecutive
+    private void appendRows(StringBuilder wordRows, int bookId, PositionList positions) {
+        int[] lines = new int[positions.size()];
+        int[] offsets = new int[positions.size()];
+        int[] count = {0};
+        positions.forEach((line, wordIndex) -> {
+            lines[count[0]] = line;
+            offsets[count[0]++] = wordIndex;
+        });
+        String book = String.valueOf(bookId);
+        int from = 0;
+        for (int i = 1; i <= count[0]; i++) {
+            if (i == count[0] || lines[i] != lines[from]) {
+                TsvRowFormat.appendRow(wordRows, book, lines[from], i - from,
+                        positionalPostings ? TsvRowFormat.encodePositions(offsets, from, i - from) : null);
+                from = i;
+            }
+        }
+    }
+
+    // Rows are only appended, each word file from its current end
+    @Override
+    public Map<Path, Long> pendingWrites() {
+        Map<Path, Long> writes = new HashMap<>();
+        for (String word : rows.keySet()) {
+            if (!DatamartIndexSink.RESERVED_WINDOWS_WORDS.contains(word.toLowerCase())) {
+                File file = fileFor(word);
+                writes.put(file.toPath(), file.length());
+            }
+        }
+        return writes;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        List<String> words = new ArrayList<>(rows.keySet());
+        Collections.sort(words);
+        for (String word : words) {
+            if (DatamartIndexSink.RESERVED_WINDOWS_WORDS.contains(word.toLowerCase())) {
+                System.out.println("Skipping reserved word: " + word);
+                continue;
+            }
+            File file = fileFor(word);
+            File directory = file.getParentFile();
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+
+            boolean newFile = file.length() == 0;
+            // Checked once per run, the sink is the only writer of its datamart
+            if (!newFile && !checkedFiles.contains(word)) {
+                TsvRowFormat.checkHeader(file, positionalPostings);
+            }
+            checkedFiles.add(word);
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
+                if (newFile) {
+                    writer.write(TsvRowFormat.header(positionalPostings));
+                    writer.write('\n');
+                }
+                writer.write(rows.get(word).toString());
+            }
+        }
+        rows.clear();
+    }
+
+    private File fileFor(String word) {
+        String subfolder = word.length() > 1 ? word.substring(0, 2) : word.substring(0, 1);
+        return new File(datamartDirectory + "/" + subfolder.charAt(0) + "/" + subfolder, word + ".tsv");
+    }
+}
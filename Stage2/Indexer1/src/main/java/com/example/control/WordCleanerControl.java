@@ -19,4 +19,10 @@ public class WordCleanerControl implements WordCleaner {
 
         return word.trim();
     }
+
+    @Override
+    public void cleanWord(CharSequence text, int start, int end, StringBuilder out) {
+        out.setLength(0);
+        out.append(cleanWord(text.subSequence(start, end).toString()));
+    }
 }
@@ -6,27 +6,99 @@ import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.CoreDocument;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class WordLemmatizerControl implements WordLemmatizer {
 
-    private final StanfordCoreNLP pipeline;
+    // Built on first use, so a warm lemma cache can skip loading the CoreNLP models entirely
+    private volatile StanfordCoreNLP pipeline;
+    // Splits on whitespace only, so every cleaned word maps to exactly one token
+    private volatile StanfordCoreNLP bulkPipeline;
 
     public WordLemmatizerControl() {
-        Properties props = new Properties();
-        props.setProperty("annotators", "tokenize,ssplit,pos,lemma");
-        props.setProperty("tokenize.language", "en");
-        this.pipeline = new StanfordCoreNLP(props);
     }
 
     @Override
     public String lemmatize(String word) {
         word = word.toLowerCase();
         CoreDocument document = new CoreDocument(word);
-        pipeline.annotate(document);
+        getPipeline().annotate(document);
         for (CoreLabel token : document.tokens()) {
             return token.get(CoreAnnotations.LemmaAnnotation.class);
         }
         return word;
     }
+
+    @Override
+    public List<String> lemmatizeAll(List<String> words) {
+        StringBuilder text = new StringBuilder();
+        int expectedTokens = 0;
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                if (expectedTokens > 0) {
+                    text.append(' ');
+                }
+                text.append(word.toLowerCase());
+                expectedTokens++;
+            }
+        }
+
+        List<String> lemmas = new ArrayList<>(words.size());
+        if (expectedTokens == 0) {
+            lemmas.addAll(words);
+            return lemmas;
+        }
+
+        CoreDocument document = new CoreDocument(text.toString());
+        getBulkPipeline().annotate(document);
+        List<CoreLabel> tokens = document.tokens();
+
+        if (tokens.size() != expectedTokens) {
+            // Should not happen with whitespace tokenization, but never misalign positions
+            for (String word : words) {
+                lemmas.add(word.isEmpty() ? word : lemmatize(word));
+            }
+            return lemmas;
+        }
+
+        int tokenIndex = 0;
+        for (String word : words) {
+            lemmas.add(word.isEmpty() ? word : tokens.get(tokenIndex++).get(CoreAnnotations.LemmaAnnotation.class));
+        }
+        return lemmas;
+    }
+
+    private StanfordCoreNLP getPipeline() {
+        if (pipeline == null) {
+            synchronized (this) {
+                if (pipeline == null) {
+                    pipeline = createPipeline(false);
+                }
+            }
+        }
+        return pipeline;
+    }
+
+    private StanfordCoreNLP getBulkPipeline() {
+        if (bulkPipeline == null) {
+            synchronized (this) {
+                if (bulkPipeline == null) {
+                    bulkPipeline = createPipeline(true);
+                }
+            }
+        }
+        return bulkPipeline;
+    }
+
+    private static StanfordCoreNLP createPipeline(boolean whitespaceTokens) {
+        Properties props = new Properties();
+        props.setProperty("annotators", "tokenize,ssplit,pos,lemma");
+        props.setProperty("tokenize.language", "en");
+        if (whitespaceTokens) {
+            props.setProperty("tokenize.whitespace", "true");
+        }
+        return new StanfordCoreNLP(props);
+    }
 }
@@ -0,0 +1,19 @@
+package com.example.interfaces;
+
+import com.example.model.WordPostings;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
+public interface DeltaLogManager {
+    void appendDelta(Collection<WordPostings> postings) throws IOException;
+
+    List<Path> listDeltas() throws IOException;
+
+    List<WordPostings> readDelta(Path deltaPath) throws IOException;
+
+    void deleteDelta(Path deltaPath) throws IOException;
+
+    long pendingBytes() throws IOException;
+}
@@ -0,0 +1,26 @@
+package com.example.interfaces;
+
+import com.example.model.WordPostings;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+public interface IndexSink {
+    // Receives the postings of one book, books arrive in increasing id order.
+    // The same postings go to every sink, so they are read here but never modified
+    void addBook(int bookId, Map<String, WordPostings> bookWords) throws IOException;
+
+    // Persists every book added since the last flush, the checkpoint moves only after all sinks flushed
+    void flush() throws IOException;
+
+    // Files the next flush() changes in place, with the offset it starts writing at, so an interrupted
+    // flush can be rolled back. Sinks that only rewrite whole files atomically have none.
+    default Map<Path, Long> pendingWrites() throws IOException {
+        return Map.of();
+    }
+
+    // Called after a group is committed, outside any group: may rewrite whole files to reclaim
+    // the space earlier appends left behind
+    default void compact() throws IOException {
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.interfaces;
+
+import com.example.model.WordPostings;
+import java.io.IOException;
+
+public interface SegmentFileManager {
+    WordPostings readSegment(String filePath) throws IOException;
+
+    void writeSegment(String filePath, WordPostings postings) throws IOException;
+}
@@ -4,4 +4,7 @@ public interface WordCleaner {
 
     String cleanWord(String word);
 
+    // Cleans text[start, end) into out, which is cleared first and can be reused between words
+    void cleanWord(CharSequence text, int start, int end, StringBuilder out);
+
 }
@@ -1,5 +1,10 @@
 package com.example.interfaces;
 
+import java.util.List;
+
 public interface WordLemmatizer {
     String lemmatize(String word);
+
+    // Lemmatizes a whole line in one pass, returning one lemma per input word (empty words stay empty)
+    List<String> lemmatizeAll(List<String> words);
 }
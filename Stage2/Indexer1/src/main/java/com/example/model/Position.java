@@ -24,4 +24,22 @@ public class Position {
     public void setWordIndex(int wordIndex) {
         this.wordIndex = wordIndex;
     }
+
+    // Value equality, so merging the same book twice does not duplicate its positions
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Position)) {
+            return false;
+        }
+        Position other = (Position) o;
+        return line == other.line && wordIndex == other.wordIndex;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * line + wordIndex;
+    }
 }
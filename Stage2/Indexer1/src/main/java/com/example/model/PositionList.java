@@ -0,0 +1,144 @@
+package com.example.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// (line, wordIndex) pairs of one word in one book, kept as a growable int array while indexing.
+// freeze() replaces the array by zigzag delta varints: lines against the previous line,
+// word indexes against the previous word index of the same line.
+public class PositionList {
+
+    public interface PositionConsumer {
+        void accept(int line, int wordIndex);
+    }
+
+    private int[] pairs;
+    private int size;
+    private byte[] encoded;
+
+    public PositionList() {
+        this.pairs = new int[8];
+    }
+
+    private PositionList(int size, byte[] encoded) {
+        this.size = size;
+        this.encoded = encoded;
+    }
+
+    public static PositionList fromEncoded(int size, byte[] encoded) {
+        return new PositionList(size, encoded);
+    }
+
+    public void add(int line, int wordIndex) {
+        if (encoded != null) {
+            throw new IllegalStateException("Position list is frozen");
+        }
+        if (size * 2 == pairs.length) {
+            pairs = Arrays.copyOf(pairs, pairs.length * 2);
+        }
+        pairs[size * 2] = line;
+        pairs[size * 2 + 1] = wordIndex;
+        size++;
+    }
+
+    public void addAll(PositionList other) {
+        other.forEach(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFrozen() {
+        return encoded != null;
+    }
+
+    public void freeze() {
+        if (encoded != null) {
+            return;
+        }
+        byte[] out = new byte[Math.max(16, size * 3)];
+        int length = 0;
+        int previousLine = 0;
+        int previousWordIndex = 0;
+        for (int i = 0; i < size; i++) {
+            int line = pairs[i * 2];
+            int wordIndex = pairs[i * 2 + 1];
+            if (out.length - length < 10) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            length = writeVarInt(out, length, zigzag(line - previousLine));
+            length = writeVarInt(out, length, zigzag(line == previousLine ? wordIndex - previousWordIndex : wordIndex));
+            previousLine = line;
+            previousWordIndex = wordIndex;
+        }
+        encoded = Arrays.copyOf(out, length);
+        pairs = null;
+    }
+
+    // The varint block written by freeze(); freezes the list if it was still growing
+    public byte[] getEncoded() {
+        freeze();
+        return encoded;
+    }
+
+    public void forEach(PositionConsumer consumer) {
+        if (encoded == null) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(pairs[i * 2], pairs[i * 2 + 1]);
+            }
+            return;
+        }
+
+        int offset = 0;
+        int line = 0;
+        int wordIndex = 0;
+        for (int i = 0; i < size; i++) {
+            int lineDelta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[offset++];
+                lineDelta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            int wordValue = 0;
+            shift = 0;
+            do {
+                b = encoded[offset++];
+                wordValue |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            int previousLine = line;
+            line += unzigzag(lineDelta);
+            wordIndex = line == previousLine ? wordIndex + unzigzag(wordValue) : unzigzag(wordValue);
+            consumer.accept(line, wordIndex);
+        }
+    }
+
+    public List<Position> toPositions() {
+        List<Position> positions = new ArrayList<>(size);
+        forEach((line, wordIndex) -> positions.add(new Position(line, wordIndex)));
+        return positions;
+    }
+
+    private static int writeVarInt(byte[] out, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
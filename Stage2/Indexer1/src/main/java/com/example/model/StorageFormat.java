@@ -0,0 +1,11 @@
+package com.example.model;
+
+// How the Indexer1 datamart stores the postings of each word
+public enum StorageFormat {
+    // Pretty-printed <word>.json files read by JSONIndexLoader
+    JSON,
+    // Binary <word>.seg files written by SegmentFileManagerControl
+    SEGMENT,
+    // The same binary postings, appended to one <c>/<cc>.shard file per two-letter prefix
+    SHARDED
+}
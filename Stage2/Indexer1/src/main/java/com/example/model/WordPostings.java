@@ -0,0 +1,184 @@
+package com.example.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Compact in-memory postings of one word: parallel arrays of int book ids and their position lists.
+// Books are expected in increasing id order, so the last book is the one usually appended to.
+public class WordPostings {
+
+    private final String word;
+    private int[] bookIds;
+    private PositionList[] positions;
+    private int books;
+    private int total;
+
+    public WordPostings(String word) {
+        this.word = word;
+        this.bookIds = new int[2];
+        this.positions = new PositionList[2];
+    }
+
+    public String getWord() {
+        return word;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getBookCount() {
+        return books;
+    }
+
+    public int getBookId(int index) {
+        return bookIds[index];
+    }
+
+    public PositionList getPositions(int index) {
+        return positions[index];
+    }
+
+    public void add(int bookId, int line, int wordIndex) {
+        positionsFor(bookId).add(line, wordIndex);
+        total++;
+    }
+
+    // Appends the books of other; a book present in both keeps each (line, wordIndex) once,
+    // so merging the same book twice (a re-indexed book, a replayed delta) changes nothing
+    public void addAll(WordPostings other) {
+        for (int i = 0; i < other.books; i++) {
+            int index = indexOf(other.bookIds[i]);
+            if (index < 0) {
+                append(other.bookIds[i], other.positions[i]);
+                total += other.positions[i].size();
+            } else {
+                int previousSize = positions[index].size();
+                positions[index] = union(positions[index], other.positions[i]);
+                total += positions[index].size() - previousSize;
+            }
+        }
+    }
+
+    public void freeze() {
+        for (int i = 0; i < books; i++) {
+            positions[i].freeze();
+        }
+    }
+
+    // The Word shape stored in the JSON datamart
+    public Word toWord() {
+        Map<String, BookAllocation> allocations = new HashMap<>();
+        for (int i = 0; i < books; i++) {
+            allocations.put("BookID_" + bookIds[i],
+                    new BookAllocation(positions[i].size(), positions[i].toPositions()));
+        }
+        return new Word(word, allocations, total);
+    }
+
+    // Inverse of toWord(), for datamarts written in JSON
+    public static WordPostings fromWord(Word word) {
+        WordPostings postings = new WordPostings(word.getWord());
+        List<Map.Entry<String, BookAllocation>> allocations = new ArrayList<>(word.getAllocations().entrySet());
+        allocations.sort(Comparator.comparingInt(entry -> parseBookId(entry.getKey())));
+        for (Map.Entry<String, BookAllocation> entry : allocations) {
+            PositionList list = new PositionList();
+            for (Position position : entry.getValue().getPositions()) {
+                list.add(position.getLine(), position.getWordIndex());
+            }
+            list.freeze();
+            postings.append(parseBookId(entry.getKey()), list);
+        }
+        postings.total = word.getTotal();
+        return postings;
+    }
+
+    // word, total, book count, then per book: id, number of positions, varint block length and block
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(word);
+        out.writeInt(total);
+        out.writeInt(books);
+        for (int i = 0; i < books; i++) {
+            byte[] encoded = positions[i].getEncoded();
+            out.writeInt(bookIds[i]);
+            out.writeInt(positions[i].size());
+            out.writeInt(encoded.length);
+            out.write(encoded);
+        }
+    }
+
+    public static WordPostings readFrom(DataInput in) throws IOException {
+        WordPostings postings = new WordPostings(in.readUTF());
+        int total = in.readInt();
+        int books = in.readInt();
+        for (int i = 0; i < books; i++) {
+            int bookId = in.readInt();
+            int size = in.readInt();
+            byte[] encoded = new byte[in.readInt()];
+            in.readFully(encoded);
+            postings.append(bookId, PositionList.fromEncoded(size, encoded));
+        }
+        postings.total = total;
+        return postings;
+    }
+
+    private static PositionList union(PositionList first, PositionList second) {
+        PositionList union = new PositionList();
+        Set<Long> seen = new HashSet<>();
+        PositionList.PositionConsumer addNew = (line, wordIndex) -> {
+            if (seen.add(((long) line << 32) | (wordIndex & 0xFFFFFFFFL))) {
+                union.add(line, wordIndex);
+            }
+        };
+        first.forEach(addNew);
+        second.forEach(addNew);
+        if (first.isFrozen()) {
+            union.freeze();
+        }
+        return union;
+    }
+
+    private static int parseBookId(String bookKey) {
+        return Integer.parseInt(bookKey.replace("BookID_", ""));
+    }
+
+    private PositionList positionsFor(int bookId) {
+        int index = books > 0 && bookIds[books - 1] == bookId ? books - 1 : indexOf(bookId);
+        if (index < 0) {
+            append(bookId, new PositionList());
+            index = books - 1;
+        }
+        return positions[index];
+    }
+
+    private int indexOf(int bookId) {
+        if (books == 0 || bookId > bookIds[books - 1]) {
+            return -1;
+        }
+        for (int i = books - 1; i >= 0; i--) {
+            if (bookIds[i] == bookId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void append(int bookId, PositionList list) {
+        if (books == bookIds.length) {
+            bookIds = Arrays.copyOf(bookIds, books * 2);
+            positions = Arrays.copyOf(positions, books * 2);
+        }
+        bookIds[books] = bookId;
+        positions[books] = list;
+        books++;
+    }
+}
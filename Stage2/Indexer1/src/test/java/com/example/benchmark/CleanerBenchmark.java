@@ -0,0 +1,89 @@
+package com.example.benchmark;
+
+import com.example.control.ScanningWordCleaner;
+import com.example.control.WordCleanerControl;
+import com.example.interfaces.WordCleaner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Regex cleaner versus the single-pass scanner on the words of datalake/books.
+// The setup first checks that both produce exactly the same output.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CleanerBenchmark {
+
+    private static final int WORDS = 200_000;
+    private static final List<String> EDGE_CASES = Arrays.asList(
+            "", "whale", "Whale's", "it’s", "don't", "café", "Æsir", "naïve", "ﬁne", "straße",
+            "_under_", "1984", "x'y z", "end's\r\n", "á", "𝐀", "\uD800", "--", "ÉCOLE");
+
+    private final WordCleaner regexCleaner = new WordCleanerControl();
+    private final WordCleaner scanningCleaner = new ScanningWordCleaner();
+    private List<String> words;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        words = new ArrayList<>(EDGE_CASES);
+        File[] books = new File("datalake/books").listFiles((dir, name) -> name.endsWith(".txt"));
+        if (books != null) {
+            for (File book : books) {
+                for (String line : Files.readAllLines(book.toPath(), StandardCharsets.UTF_8)) {
+                    words.addAll(Arrays.asList(line.split("\\s+")));
+                }
+                if (words.size() >= WORDS) {
+                    break;
+                }
+            }
+        }
+
+        for (String word : words) {
+            String expected = regexCleaner.cleanWord(word);
+            String actual = scanningCleaner.cleanWord(word);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Cleaners disagree on '" + word + "': '" + expected + "' vs '" + actual + "'");
+            }
+        }
+    }
+
+    @Benchmark
+    public void regexCleaner(Blackhole blackhole) {
+        for (String word : words) {
+            blackhole.consume(regexCleaner.cleanWord(word));
+        }
+    }
+
+    @Benchmark
+    public void scanningCleaner(Blackhole blackhole) {
+        StringBuilder cleaned = new StringBuilder();
+        for (String word : words) {
+            scanningCleaner.cleanWord(word, 0, word.length(), cleaned);
+            blackhole.consume(cleaned.length());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(CleanerBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.benchmark;
+
+import com.example.control.IndexerControl;
+import com.example.control.WordLemmatizerControl;
+import com.example.model.StorageFormat;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Indexes the books in datalake/books into a scratch datamart, once per batch size and thread count
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class IndexingBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int batchSize;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private Path workDirectory;
+    private IndexerControl indexer;
+
+    @Setup(Level.Invocation)
+    public void setup() throws IOException {
+        workDirectory = Files.createTempDirectory("indexer1-benchmark");
+        indexer = new IndexerControl("datalake/books",
+                workDirectory.resolve("datamart").toString(),
+                workDirectory.resolve("lastBookId_indexer1.txt").toString(),
+                batchSize, Long.MAX_VALUE, threads, WordLemmatizerControl::new, false, StorageFormat.JSON, false);
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDirectory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void indexCorpus() throws IOException {
+        indexer.executeIndexing();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(IndexingBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
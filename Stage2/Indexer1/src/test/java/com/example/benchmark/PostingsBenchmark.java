@@ -0,0 +1,98 @@
+package com.example.benchmark;
+
+import com.example.model.BookAllocation;
+import com.example.model.Position;
+import com.example.model.Word;
+import com.example.model.WordPostings;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Building the postings of a batch of books as Position objects versus frozen WordPostings.
+// Run with -prof gc to compare the allocation rate of both layouts.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PostingsBenchmark {
+
+    private static final int BOOKS = 20;
+    private static final int LINES = 2_000;
+    private static final int WORDS_PER_LINE = 10;
+    private static final int VOCABULARY = 5_000;
+
+    private String[] vocabulary;
+    private int[] wordIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        vocabulary = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            vocabulary[i] = "word" + i;
+        }
+        // Roughly Zipfian, so a few words collect most of the positions like in real books
+        wordIds = new int[LINES * WORDS_PER_LINE];
+        for (int i = 0; i < wordIds.length; i++) {
+            wordIds[i] = (int) Math.min(VOCABULARY - 1, Math.exp(random.nextDouble() * Math.log(VOCABULARY)) - 1);
+        }
+    }
+
+    @Benchmark
+    public void positionObjects(Blackhole blackhole) {
+        Map<String, Word> buffer = new HashMap<>();
+        for (int bookId = 1; bookId <= BOOKS; bookId++) {
+            String bookKey = "BookID_" + bookId;
+            for (int i = 0; i < wordIds.length; i++) {
+                String lemma = vocabulary[wordIds[i]];
+                BookAllocation allocation = buffer.computeIfAbsent(lemma, k -> new Word(lemma, new HashMap<>(), 0))
+                        .getAllocations()
+                        .computeIfAbsent(bookKey, k -> new BookAllocation(0, new ArrayList<>()));
+                allocation.getPositions().add(new Position(i / WORDS_PER_LINE + 1, i % WORDS_PER_LINE + 1));
+                allocation.setTimes(allocation.getTimes() + 1);
+                buffer.get(lemma).setTotal(buffer.get(lemma).getTotal() + 1);
+            }
+        }
+        blackhole.consume(buffer);
+    }
+
+    @Benchmark
+    public void wordPostings(Blackhole blackhole) {
+        Map<String, WordPostings> buffer = new HashMap<>();
+        for (int bookId = 1; bookId <= BOOKS; bookId++) {
+            Map<String, WordPostings> book = new HashMap<>();
+            for (int i = 0; i < wordIds.length; i++) {
+                book.computeIfAbsent(vocabulary[wordIds[i]], WordPostings::new)
+                        .add(bookId, i / WORDS_PER_LINE + 1, i % WORDS_PER_LINE + 1);
+            }
+            for (WordPostings postings : book.values()) {
+                postings.freeze();
+                WordPostings buffered = buffer.putIfAbsent(postings.getWord(), postings);
+                if (buffered != null) {
+                    buffered.addAll(postings);
+                }
+            }
+        }
+        blackhole.consume(buffer);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(PostingsBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -2,26 +2,68 @@ package com.example.control;
 
 import com.example.interfaces.FileHandler;
 import com.example.interfaces.Indexer;
+import com.example.interfaces.ProgressManifest;
 import com.example.interfaces.WordDataHandler;
+import com.example.model.BookRun;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
 
 public class BookIndexer implements Indexer {
+    private static final Set<String> RESERVED_WINDOWS_WORDS = Set.of(
+            "con", "prn", "aux", "nul",
+            "com1", "com2", "com3", "com4", "com5", "com6", "com7", "com8", "com9",
+            "lpt1", "lpt2", "lpt3", "lpt4", "lpt5", "lpt6", "lpt7", "lpt8", "lpt9"
+    );
+
     private final FileHandler fileHandler;
-    private TsvFileHandler tsvFileHandler;
+    private final TsvFileHandler tsvFileHandler;
     private final WordDataHandler wordDataHandler;
-    private final Set<String> indexedBooks;
+    private final ProgressManifest progressManifest = new ProgressManifestControl("Indexer2/resources/progress_indexer2");
+    private final boolean bulkAnnotation;
+    private final int lemmatizerThreads;
+    private final int queueCapacity;
+    private final int commitGroupSize;
+    // Written books whose rows are still in the handler, committed together
+    private final List<String> pendingBookIds = new ArrayList<>();
+    private final List<BookRun> pendingRuns = new ArrayList<>();
+    // Set when a SPIMI memory budget is given: books are spilled as sorted runs and merged at the end
+    private final SpimiIndexer spimiIndexer;
 
     public BookIndexer(FileHandler fileHandler, WordDataHandler wordDataHandler) {
+        this(fileHandler, wordDataHandler, false, false, false, TsvFileHandler.DEFAULT_MAX_OPEN_FILES, 0, 0, 1, 0);
+    }
+
+    // lemmatizerThreads > 0 runs the staged pipeline (see BookPipeline), 0 keeps the sequential loop;
+    // commitGroupSize books are written and recorded in the progress manifest as one group;
+    // spimiMemoryBudget > 0 replaces the per-group writes with SPIMI runs merged once, as one group
+    // committed a chunk at a time
+    public BookIndexer(FileHandler fileHandler, WordDataHandler wordDataHandler, boolean bulkAnnotation,
+                       boolean shardedLayout, boolean positionalPostings, int maxOpenFiles,
+                       int lemmatizerThreads, int queueCapacity, int commitGroupSize, long spimiMemoryBudget) {
         this.fileHandler = fileHandler;
         this.wordDataHandler = wordDataHandler;
-        this.indexedBooks = loadIndexedBooks();
+        this.bulkAnnotation = bulkAnnotation;
+        this.lemmatizerThreads = lemmatizerThreads;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.commitGroupSize = Math.max(1, commitGroupSize);
+        // One handler for the whole run, so known headers and created directories carry over between books
+        this.tsvFileHandler = shardedLayout
+                ? new ShardedTsvFileHandler(positionalPostings)
+                : new TsvFileHandler(maxOpenFiles, positionalPostings);
+        this.spimiIndexer = spimiMemoryBudget > 0
+                ? new SpimiIndexer("Indexer2/resources/spimi_runs", spimiMemoryBudget, positionalPostings)
+                : null;
     }
 
     @Override
     public void execute() {
         try {
+            // Rolls back the files of a group a crash left half written
+            progressManifest.recover();
+            resumeSpimiMerge();
+
             String lastIndexedBookId = getLastIndexedBookId();
             int lastProcessedId = lastIndexedBookId.isEmpty() ? 0 : Integer.parseInt(lastIndexedBookId);
             System.out.println("Last indexed book ID: " + lastProcessedId);
@@ -30,22 +72,28 @@ public class BookIndexer implements Indexer {
 
             bookFiles.sort(Comparator.comparingInt(bookFile -> Integer.parseInt(getBookId(bookFile))));
 
-            // Remove books that have already been indexed (based on the last indexed book ID)
+            // Remove books that have already been indexed: the old checkpoint file is still honoured,
+            // everything after it is decided by the progress manifest
             bookFiles.removeIf(bookFile -> {
                 String bookId = getBookId(bookFile);
                 int currentBookId = Integer.parseInt(bookId);
-                return currentBookId <= lastProcessedId;
+                return currentBookId <= lastProcessedId || progressManifest.isCompleted(currentBookId);
             });
 
-            for (String bookFile : bookFiles) {
-                String bookId = getBookId(bookFile);
-                List<String> paragraphs = fileHandler.readLines(bookFile);
-                processBook(bookId, paragraphs);
-
-                indexedBooks.add(bookId);
+            try {
+                if (lemmatizerThreads > 0) {
+                    new BookPipeline(this, fileHandler, lemmatizerThreads, queueCapacity).run(bookFiles);
+                    return;
+                }
 
-                saveIndexedBooks();
-                System.out.println("Book " + bookId + " indexed successfully.");
+                for (String bookFile : bookFiles) {
+                    String bookId = getBookId(bookFile);
+                    List<String> paragraphs = fileHandler.readLines(bookFile);
+                    processBook(bookId, paragraphs);
+                }
+            } finally {
+                // Books written before a failure still make it into the manifest
+                commitPending();
             }
         } catch (Exception e) {
             System.out.println("Error during execution: " + e.getMessage());
@@ -67,113 +115,171 @@ public class BookIndexer implements Indexer {
         return "";
     }
 
-    private void processBook(String bookId, List<String> paragraphs) {
-        tsvFileHandler = new TsvFileHandler();
-
-        Set<String> reservedWindowsWords = Set.of(
-                "con", "prn", "aux", "nul",
-                "com1", "com2", "com3", "com4", "com5", "com6", "com7", "com8", "com9",
-                "lpt1", "lpt2", "lpt3", "lpt4", "lpt5", "lpt6", "lpt7", "lpt8", "lpt9"
-        );
-
-        for (int paragraphIndex = 0; paragraphIndex < paragraphs.size(); paragraphIndex++) {
-            String paragraph = paragraphs.get(paragraphIndex);
+    private void processBook(String bookId, List<String> paragraphs) throws IOException {
+        writeBook(bookId, lemmatizeBook(cleanBook(paragraphs)));
+    }
 
+    // Stage 1: splits and cleans every paragraph; reserved words are left as they are
+    List<CleanedParagraph> cleanBook(List<String> paragraphs) {
+        List<CleanedParagraph> cleaned = new ArrayList<>(paragraphs.size());
+        for (String paragraph : paragraphs) {
             List<String> words = wordDataHandler.cleanAndSplit(paragraph);
+            BitSet reserved = new BitSet();
 
             for (int i = 0; i < words.size(); i++) {
                 String word = words.get(i);
 
-                if (reservedWindowsWords.contains(word.toLowerCase())) {
+                if (RESERVED_WINDOWS_WORDS.contains(word.toLowerCase())) {
                     System.out.println("Skipping reserved word: " + word);
+                    reserved.set(i);
                     continue;
                 }
 
-                word = wordDataHandler.cleanWord(word);
-                word = wordDataHandler.lemmAdd(word);
-                words.set(i, word);
+                words.set(i, wordDataHandler.cleanWord(word));
             }
+            cleaned.add(new CleanedParagraph(words, reserved));
+        }
+        return cleaned;
+    }
 
-            Map<String, Integer> wordCountMap = new HashMap<>();
-
-            for (String word : words) {
-                if (!word.isEmpty() && !reservedWindowsWords.contains(word.toLowerCase())) {
-                    wordCountMap.put(word, wordCountMap.getOrDefault(word, 0) + 1);
+    // Stage 2: lemmatises the cleaned words and counts them per paragraph
+    BookRun lemmatizeBook(List<CleanedParagraph> paragraphs) {
+        BookRun run = new BookRun();
+        for (int paragraphIndex = 0; paragraphIndex < paragraphs.size(); paragraphIndex++) {
+            CleanedParagraph paragraph = paragraphs.get(paragraphIndex);
+            List<String> words = paragraph.words;
+
+            if (bulkAnnotation) {
+                // Annotates the whole paragraph at once so the POS tagger sees every word in context
+                words = wordDataHandler.lemmAddAll(words);
+            } else {
+                for (int i = 0; i < words.size(); i++) {
+                    if (!paragraph.reserved.get(i)) {
+                        words.set(i, wordDataHandler.lemmAdd(words.get(i)));
+                    }
                 }
             }
 
-            for (Map.Entry<String, Integer> entry : wordCountMap.entrySet()) {
-                String word = entry.getKey();
-                int count = entry.getValue();
-
-                if (reservedWindowsWords.contains(word.toLowerCase())) {
-                    System.out.println("Skipping reserved word during saving: " + word);
-                    continue;
-                }
-
-                try {
-                    tsvFileHandler.saveWordsToFile(word, bookId, paragraphIndex + 1, count);
-                } catch (Exception e) {
-                    System.out.println("Error while saving the word to the TSV file: " + e.getMessage());
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                if (!word.isEmpty() && !RESERVED_WINDOWS_WORDS.contains(word.toLowerCase())) {
+                    // Offsets count every word of the split paragraph, starting at 1
+                    run.add(word, paragraphIndex + 1, i + 1);
                 }
             }
         }
+        return run;
     }
 
-
-    private String getBookId(String bookFilePath) {
-        String fileName = new File(bookFilePath).getName();
-        return fileName.replace(".txt", "");
+    // Stage 3: books are written a group at a time, each as one run sorted by term
+    void writeBook(String bookId, BookRun run) throws IOException {
+        pendingBookIds.add(bookId);
+        if (spimiIndexer != null) {
+            spimiIndexer.addRun(bookId, run);
+            return;
+        }
+        pendingRuns.add(run);
+        if (pendingBookIds.size() >= commitGroupSize) {
+            commitPending();
+        }
     }
 
-    // Load the list of indexed books from a file
-    private Set<String> loadIndexedBooks() {
-        Set<String> indexedBooks = new HashSet<>();
-        String filePath = "Indexer2/resources/lastBookId_indexer2.txt";
-        File indexedBooksFile = new File(filePath);
-        if (indexedBooksFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(indexedBooksFile))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    indexedBooks.add(line.trim());
-                }
-            } catch (IOException e) {
-                System.out.println("Error al cargar los libros indexados: " + e.getMessage());
-            }
+    // Writes the buffered books between beginGroup and commitGroup, so a crash either keeps
+    // the whole group or rolls every file it touched back on the next run
+    void commitPending() throws IOException {
+        if (pendingBookIds.isEmpty()) {
+            return;
+        }
+        List<String> bookIds = new ArrayList<>(pendingBookIds);
+        List<BookRun> runs = new ArrayList<>(pendingRuns);
+        pendingBookIds.clear();
+        pendingRuns.clear();
+
+        if (spimiIndexer != null) {
+            commitSpimiRuns(bookIds);
+            return;
         }
 
-        return indexedBooks;
-    }
+        List<Integer> group = new ArrayList<>();
+        Set<String> terms = new HashSet<>();
+        for (int i = 0; i < bookIds.size(); i++) {
+            group.add(Integer.parseInt(bookIds.get(i)));
+            terms.addAll(runs.get(i).sortedTerms());
+        }
+        Map<Path, Long> appendOffsets = tsvFileHandler.appendOffsets(terms);
 
-    private void saveIndexedBooks() {
-        String directoryPath = "Indexer2/resources";
-        File dir = new File(directoryPath);
-        if (!dir.exists()) {
-            dir.mkdirs();
+        // A failed write skips commitGroup and ends the run, the next one rolls the whole group back
+        progressManifest.beginGroup(group, appendOffsets);
+        for (int i = 0; i < bookIds.size(); i++) {
+            tsvFileHandler.saveRun(bookIds.get(i), runs.get(i));
         }
+        tsvFileHandler.flush();
+        progressManifest.commitGroup(group);
+        tsvFileHandler.compact();
+
+        for (String bookId : bookIds) {
+            System.out.println("Book " + bookId + " indexed successfully.");
+        }
+    }
 
-        String filePath = directoryPath + "/lastBookId_indexer2.txt";
-        File indexedBooksFile = new File(filePath);
+    // Every book since the start of the run is one group, written a merge chunk at a time: a crash
+    // before the merge drops the runs and the books are indexed again, a crash during it rolls back
+    // the chunk being written and the next run finishes the merge from the runs (see resumeSpimiMerge)
+    private void commitSpimiRuns(List<String> bookIds) throws IOException {
+        List<Integer> group = new ArrayList<>();
+        for (String bookId : bookIds) {
+            group.add(Integer.parseInt(bookId));
+        }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(indexedBooksFile))) {
-            if (!indexedBooks.isEmpty()) {
+        int runs = mergeSpimiRuns(group, "");
+        System.out.println("Merged " + runs + " runs of " + bookIds.size() + " books.");
+        for (String bookId : bookIds) {
+            System.out.println("Book " + bookId + " indexed successfully.");
+        }
+    }
 
-                String lastBookId = indexedBooks.stream()
-                        .map(bookId -> bookId.replaceAll("\\D+", ""))
-                        .filter(id -> !id.isEmpty())
-                        .mapToInt(Integer::parseInt)
-                        .max()
-                        .stream()
-                        .mapToObj(String::valueOf)
-                        .findFirst()
-                        .orElse("");
+    // Each chunk is a step of the group, so the undo journal only covers the files of one chunk
+    private int mergeSpimiRuns(Collection<Integer> group, String resumeAfter) throws IOException {
+        int runs = spimiIndexer.merge(tsvFileHandler, resumeAfter, (resumePoint, terms) ->
+                progressManifest.beginStep(group, resumePoint, tsvFileHandler.appendOffsets(terms)));
+        progressManifest.commitGroup(group);
+        spimiIndexer.clearRuns();
+        tsvFileHandler.compact();
+        return runs;
+    }
 
-                writer.write(lastBookId);
-                writer.newLine();
+    // Finishes the merge a crash interrupted, its books are then completed like any other group;
+    // runs without a merge in progress belong to books that are indexed again
+    private void resumeSpimiMerge() throws IOException {
+        String resumePoint = progressManifest.getResumePoint();
+        if (resumePoint == null) {
+            if (spimiIndexer != null) {
+                spimiIndexer.clearRuns();
             }
-        } catch (IOException e) {
-            System.out.println("Error al guardar el último ID del libro: " + e.getMessage());
+            return;
+        }
+        if (spimiIndexer == null || spimiIndexer.reopenRuns() == 0) {
+            throw new IOException("An interrupted SPIMI merge needs its runs and a SPIMI memory budget to finish");
         }
+        List<Integer> group = new ArrayList<>(progressManifest.getResumeGroup());
+        int runs = mergeSpimiRuns(group, resumePoint);
+        System.out.println("Finished the interrupted merge of " + runs + " runs of " + group.size() + " books"
+                + (resumePoint.isEmpty() ? "" : " after the term " + resumePoint));
+    }
+
+    String getBookId(String bookFilePath) {
+        String fileName = new File(bookFilePath).getName();
+        return fileName.replace(".txt", "");
     }
 
+    // Words of one paragraph after cleaning, with the reserved words the lemmatizer must leave alone
+    static class CleanedParagraph {
+        private final List<String> words;
+        private final BitSet reserved;
+
+        CleanedParagraph(List<String> words, BitSet reserved) {
+            this.words = words;
+            this.reserved = reserved;
+        }
+    }
 }
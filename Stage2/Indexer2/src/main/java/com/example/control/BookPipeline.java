@@ -0,0 +1,218 @@
+package com.example.control;
+
+import com.example.interfaces.FileHandler;
+import com.example.model.BookRun;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Runs BookIndexer as four stages connected by bounded queues, so reading, cleaning,
+// CoreNLP and writing overlap: read -> clean -> lemmatize (N workers) -> write.
+// A full queue blocks the stage before it. The writer commits books strictly in id order,
+// so the checkpoint never passes a book whose rows are not on disk.
+// A stage catches anything a book throws, Errors included, and passes it on with the book:
+// a stage thread that died would leave the writer waiting for that book forever.
+public class BookPipeline {
+
+    private static final long REPORT_INTERVAL_SECONDS = 10;
+
+    private final BookIndexer indexer;
+    private final FileHandler fileHandler;
+    private final int lemmatizerThreads;
+    private final BlockingQueue<BookTask> readQueue;
+    private final BlockingQueue<BookTask> cleanQueue;
+    private final BlockingQueue<BookTask> writeQueue;
+    private final Stage reading = new Stage("read");
+    private final Stage cleaning = new Stage("clean");
+    private final Stage lemmatizing = new Stage("lemmatize");
+    private final Stage writing = new Stage("write");
+    private long startNanos;
+
+    public BookPipeline(BookIndexer indexer, FileHandler fileHandler, int lemmatizerThreads, int queueCapacity) {
+        this.indexer = indexer;
+        this.fileHandler = fileHandler;
+        this.lemmatizerThreads = Math.max(1, lemmatizerThreads);
+        this.readQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.cleanQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void run(List<String> bookFiles) throws Exception {
+        startNanos = System.nanoTime();
+        ExecutorService stages = Executors.newFixedThreadPool(2 + lemmatizerThreads);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(getStats()),
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            stages.submit(() -> read(bookFiles));
+            stages.submit(this::clean);
+            for (int i = 0; i < lemmatizerThreads; i++) {
+                stages.submit(this::lemmatize);
+            }
+            write(bookFiles.size());
+        } finally {
+            reporter.shutdownNow();
+            stages.shutdownNow();
+            System.out.println(getStats());
+        }
+    }
+
+    // Books read, busy time and throughput of every stage, plus how full each queue is
+    public String getStats() {
+        double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        return "Pipeline after " + String.format("%.1f", elapsedSeconds) + "s: "
+                + reading.describe(elapsedSeconds) + " -> [" + readQueue.size() + "/" + capacity(readQueue) + "] -> "
+                + cleaning.describe(elapsedSeconds) + " -> [" + cleanQueue.size() + "/" + capacity(cleanQueue) + "] -> "
+                + lemmatizing.describe(elapsedSeconds) + " x" + lemmatizerThreads
+                + " -> [" + writeQueue.size() + "/" + capacity(writeQueue) + "] -> "
+                + writing.describe(elapsedSeconds);
+    }
+
+    private void read(List<String> bookFiles) {
+        try {
+            for (int sequence = 0; sequence < bookFiles.size(); sequence++) {
+                String bookFile = bookFiles.get(sequence);
+                BookTask task = new BookTask(sequence, indexer.getBookId(bookFile));
+                long start = System.nanoTime();
+                try {
+                    task.paragraphs = fileHandler.readLines(bookFile);
+                } catch (Throwable e) {
+                    task.error = e;
+                }
+                reading.done(start);
+                readQueue.put(task);
+            }
+            readQueue.put(BookTask.END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void clean() {
+        try {
+            BookTask task;
+            while ((task = readQueue.take()) != BookTask.END) {
+                long start = System.nanoTime();
+                if (task.error == null) {
+                    try {
+                        task.cleaned = indexer.cleanBook(task.paragraphs);
+                    } catch (Throwable e) {
+                        task.error = e;
+                    }
+                }
+                task.paragraphs = null;
+                cleaning.done(start);
+                cleanQueue.put(task);
+            }
+            // One end marker per lemmatizer, each of them stops on its own
+            for (int i = 0; i < lemmatizerThreads; i++) {
+                cleanQueue.put(BookTask.END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void lemmatize() {
+        try {
+            BookTask task;
+            while ((task = cleanQueue.take()) != BookTask.END) {
+                long start = System.nanoTime();
+                if (task.error == null) {
+                    try {
+                        task.run = indexer.lemmatizeBook(task.cleaned);
+                    } catch (Throwable e) {
+                        task.error = e;
+                    }
+                }
+                task.cleaned = null;
+                lemmatizing.done(start);
+                writeQueue.put(task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on the calling thread; lemmatizers finish out of order, so books wait here for their turn
+    private void write(int books) throws Exception {
+        Map<Integer, BookTask> waiting = new HashMap<>();
+        int nextSequence = 0;
+        while (nextSequence < books) {
+            BookTask task = waiting.remove(nextSequence);
+            if (task == null) {
+                task = writeQueue.take();
+                if (task.sequence != nextSequence) {
+                    waiting.put(task.sequence, task);
+                    continue;
+                }
+            }
+            if (task.error != null) {
+                // Same as the sequential loop: stop at the failing book, nothing after it is committed
+                if (task.error instanceof Error) {
+                    throw (Error) task.error;
+                }
+                throw (Exception) task.error;
+            }
+
+            long start = System.nanoTime();
+            indexer.writeBook(task.bookId, task.run);
+            writing.done(start);
+            nextSequence++;
+        }
+    }
+
+    private static int capacity(BlockingQueue<?> queue) {
+        return queue.size() + queue.remainingCapacity();
+    }
+
+    private static class BookTask {
+        private static final BookTask END = new BookTask(-1, null);
+
+        private final int sequence;
+        private final String bookId;
+        private List<String> paragraphs;
+        private List<BookIndexer.CleanedParagraph> cleaned;
+        private BookRun run;
+        private Throwable error;
+
+        private BookTask(int sequence, String bookId) {
+            this.sequence = sequence;
+            this.bookId = bookId;
+        }
+    }
+
+    private static class Stage {
+        private final String name;
+        private final LongAdder books = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        private void done(long startNanos) {
+            busyNanos.add(System.nanoTime() - startNanos);
+            books.increment();
+        }
+
+        private String describe(double elapsedSeconds) {
+            long count = books.sum();
+            return String.format("%s %d books (%.2f/s, busy %.1fs)", name, count, count / elapsedSeconds,
+                    busyNanos.sum() / 1e9);
+        }
+    }
+}
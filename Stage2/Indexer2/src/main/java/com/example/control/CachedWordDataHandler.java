@@ -0,0 +1,49 @@
+package com.example.control;
+
+import com.example.interfaces.WordDataHandler;
+import com.example.model.LemmaCache;
+
+import java.util.List;
+
+public class CachedWordDataHandler implements WordDataHandler {
+
+    private final WordDataHandler delegate;
+    private final LemmaCache cache;
+
+    public CachedWordDataHandler(WordDataHandler delegate, LemmaCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public String lemmAdd(String word) {
+        if (word.isEmpty()) {
+            return word;
+        }
+
+        // The delegate lowercases before annotating, so the lowercase form is a safe key
+        String key = word.toLowerCase();
+        String lemma = cache.get(key);
+        if (lemma == null) {
+            lemma = delegate.lemmAdd(key);
+            cache.put(key, lemma);
+        }
+        return lemma;
+    }
+
+    // Lemmas annotated in context depend on the surrounding words, so they bypass the cache
+    @Override
+    public List<String> lemmAddAll(List<String> words) {
+        return delegate.lemmAddAll(words);
+    }
+
+    @Override
+    public String cleanWord(String word) {
+        return delegate.cleanWord(word);
+    }
+
+    @Override
+    public List<String> cleanAndSplit(String paragraph) {
+        return delegate.cleanAndSplit(paragraph);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.control;
+
+import com.example.interfaces.WordDataHandler;
+import com.example.model.LemmaTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Dictionary lemmatisation: words are looked up in a precomputed LemmaTable and only the ones it
+// does not know go to the delegate, whose CoreNLP models are loaded on the first miss.
+// Lemmas come without POS context, which trades a little accuracy for much cheaper words.
+public class DictionaryWordDataHandler implements WordDataHandler {
+
+    private final WordDataHandler delegate;
+    private final LemmaTable table;
+
+    public DictionaryWordDataHandler(WordDataHandler delegate, LemmaTable table) {
+        this.delegate = delegate;
+        this.table = table;
+    }
+
+    @Override
+    public String lemmAdd(String word) {
+        if (word.isEmpty()) {
+            return word;
+        }
+        String lemma = table.get(word.toLowerCase());
+        return lemma != null ? lemma : delegate.lemmAdd(word);
+    }
+
+    // A paragraph with an unknown word is annotated as a whole by the delegate, keeping its context
+    @Override
+    public List<String> lemmAddAll(List<String> words) {
+        List<String> lemmas = new ArrayList<>(words.size());
+        for (String word : words) {
+            String lemma = word.isEmpty() ? word : table.get(word.toLowerCase());
+            if (lemma == null) {
+                return delegate.lemmAddAll(words);
+            }
+            lemmas.add(lemma);
+        }
+        return lemmas;
+    }
+
+    @Override
+    public String cleanWord(String word) {
+        return delegate.cleanWord(word);
+    }
+
+    @Override
+    public List<String> cleanAndSplit(String paragraph) {
+        return delegate.cleanAndSplit(paragraph);
+    }
+}
@@ -2,13 +2,82 @@ package com.example.control;
 
 import com.example.interfaces.FileHandler;
 import com.example.interfaces.WordDataHandler;
+import com.example.model.LemmaCache;
+import com.example.model.LemmaTable;
+
+import java.io.IOException;
+import java.util.HashMap;
 
 public class Main {
+    // Distinct words whose lemma is remembered across paragraphs and books
+    private static final int LEMMA_CACHE_SIZE = 500_000;
+    // Saved at the end of a run and loaded at startup, so later runs barely touch CoreNLP
+    private static final boolean PERSIST_LEMMA_CACHE = true;
+    private static final String LEMMA_CACHE_PATH = "Indexer2/resources/lemma_cache_indexer2.tsv";
+    // Looks lemmas up in a word<TAB>lemma table (a saved lemma cache works) before the cache and CoreNLP,
+    // whose models are then only loaded for words the table does not know
+    private static final boolean DICTIONARY_LEMMATIZER = false;
+    private static final String LEMMA_TABLE_PATH = "Indexer2/resources/lemma_table_indexer2.tsv";
+    // Annotates whole paragraphs in one CoreNLP call instead of word by word (bypasses the lemma cache)
+    private static final boolean BULK_ANNOTATION = false;
+    // Appends each book's rows to one .shard file per two-letter prefix instead of one .tsv file per word
+    private static final boolean SHARDED_LAYOUT = false;
+    // Adds a Positions column with the delta-encoded word offsets of every row, for phrase and proximity queries.
+    // Fixed for the life of a datamart: word files with the other header are refused, shard rows have no header
+    private static final boolean POSITIONAL_POSTINGS = false;
+    // Word files kept open between rows; each costs a file descriptor, all are closed when a group is committed
+    private static final int MAX_OPEN_FILES = 512;
+    // CoreNLP workers of the staged read -> clean -> lemmatize -> write pipeline, 0 keeps the sequential loop
+    private static final int LEMMATIZER_THREADS = 0;
+    // Books each pipeline queue holds before the stage feeding it has to wait
+    private static final int QUEUE_CAPACITY = 4;
+    // Books written and recorded in the progress manifest together; a crash re-indexes at most one group
+    private static final int COMMIT_GROUP_SIZE = 8;
+    // Heap for SPIMI runs: postings are spilled as sorted runs past this size and merged into the
+    // datamart once at the end, 0 writes every group straight to the datamart
+    private static final int SPIMI_MEMORY_BUDGET_MB = 0;
+
     public static void main(String[] args) {
+        LemmaCache lemmaCache = new LemmaCache(LEMMA_CACHE_SIZE);
+        if (PERSIST_LEMMA_CACHE) {
+            try {
+                lemmaCache.load(LEMMA_CACHE_PATH);
+            } catch (IOException e) {
+                System.out.println("Error loading the lemma cache: " + e.getMessage());
+            }
+        }
+
         FileHandler fileHandler = new TsvFileHandler();
-        WordDataHandler wordDataHandler = new WordDataHandlerImpl();
-        BookIndexer indexer = new BookIndexer(fileHandler, wordDataHandler);
+        WordDataHandler wordDataHandler = new CachedWordDataHandler(
+                new ScanningWordDataHandler(new WordDataHandlerImpl()), lemmaCache);
+        LemmaTable lemmaTable = null;
+        if (DICTIONARY_LEMMATIZER) {
+            long start = System.nanoTime();
+            try {
+                lemmaTable = LemmaTable.load(LEMMA_TABLE_PATH);
+            } catch (IOException e) {
+                System.out.println("Error loading the lemma table: " + e.getMessage());
+                lemmaTable = LemmaTable.fromMap(new HashMap<>());
+            }
+            System.out.println("Loaded " + lemmaTable.size() + " lemmas in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            wordDataHandler = new DictionaryWordDataHandler(wordDataHandler, lemmaTable);
+        }
+        BookIndexer indexer = new BookIndexer(fileHandler, wordDataHandler, BULK_ANNOTATION, SHARDED_LAYOUT,
+                POSITIONAL_POSTINGS, MAX_OPEN_FILES, LEMMATIZER_THREADS, QUEUE_CAPACITY,
+                COMMIT_GROUP_SIZE, SPIMI_MEMORY_BUDGET_MB * 1024L * 1024L);
         indexer.execute();
         System.out.println("Indexing completed successfully.");
+        System.out.println(lemmaCache);
+        if (lemmaTable != null) {
+            System.out.println(lemmaTable);
+        }
+
+        if (PERSIST_LEMMA_CACHE) {
+            try {
+                lemmaCache.save(LEMMA_CACHE_PATH);
+            } catch (IOException e) {
+                System.out.println("Error saving the lemma cache: " + e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+package com.example.control;
+
+import com.example.interfaces.WordDataHandler;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Single-pass equivalent of the regex chains in WordDataHandlerImpl.cleanWord and cleanAndSplit.
+// Characters are scanned once into a reusable buffer; lemmatization is left to the delegate.
+public class ScanningWordDataHandler implements WordDataHandler {
+
+    // ASCII letter left by NFD + ASCII filtering for each BMP letter, NO_FOLD when nothing is left
+    private static final char UNKNOWN = 0;
+    private static final char NO_FOLD = 1;
+    private static final char[] FOLDED = new char[Character.MAX_VALUE + 1];
+
+    private final WordDataHandler delegate;
+    private final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(StringBuilder::new);
+
+    public ScanningWordDataHandler(WordDataHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String lemmAdd(String word) {
+        return delegate.lemmAdd(word);
+    }
+
+    @Override
+    public List<String> lemmAddAll(List<String> words) {
+        return delegate.lemmAddAll(words);
+    }
+
+    @Override
+    public String cleanWord(String word) {
+        int length = word.length();
+
+        // (['’]s)$ : a trailing possessive, '$' also matches before one final line terminator
+        int end = length;
+        int limit = length - finalLineTerminatorLength(word, length);
+        if (limit >= 2 && word.charAt(limit - 1) == 's' && isApostrophe(word.charAt(limit - 2))) {
+            end = limit - 2;
+        }
+
+        StringBuilder out = buffer.get();
+        out.setLength(0);
+        boolean firstKept = true;
+        boolean hasDigit = false;
+        boolean hasLineTerminator = false;
+
+        for (int i = 0; i < length; i++) {
+            if (i == end) {
+                i = limit - 1;
+                continue;
+            }
+            char c = word.charAt(i);
+            if (isApostrophe(c)) {
+                continue;
+            }
+            // startsWith("_") is checked once the apostrophes are gone
+            if (firstKept && c == '_') {
+                return "";
+            }
+            firstKept = false;
+
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (isLineTerminator(c)) {
+                hasLineTerminator = true;
+            } else if (c < 128) {
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    out.append(c);
+                }
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(word.charAt(i + 1))) {
+                // No supplementary letter decomposes to ASCII, so the pair is always dropped
+                i++;
+            } else {
+                char folded = fold(c);
+                if (folded != NO_FOLD) {
+                    out.append(folded);
+                }
+            }
+        }
+
+        // matches(".*\\d.*") fails when '.' cannot cross a line terminator
+        if (hasDigit && !hasLineTerminator) {
+            return "";
+        }
+        return toLowerCase(out);
+    }
+
+    @Override
+    public List<String> cleanAndSplit(String paragraph) {
+        List<String> words = new ArrayList<>();
+        cleanAndSplit(paragraph, words);
+        return words;
+    }
+
+    // Appends the words of the paragraph to words, exactly as cleanAndSplit(String) returns them
+    public void cleanAndSplit(CharSequence paragraph, List<String> words) {
+        StringBuilder out = buffer.get();
+        out.setLength(0);
+        boolean asciiLowercase = "I".toLowerCase().equals("i");
+        boolean needsLowerCase = false;
+        // Removing apostrophes can join two lone surrogates, so a high surrogate waits for the next kept char
+        char pendingHigh = 0;
+        int length = paragraph.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = paragraph.charAt(i);
+
+            if (isApostrophe(c)) {
+                // (['’]s\b) : the 's' must not be followed by a word character (or a combining mark)
+                if (i + 1 < length && paragraph.charAt(i + 1) == 's' && !isWordBoundaryBlocker(paragraph, i + 2)) {
+                    i++;
+                }
+                continue;
+            }
+
+            if (pendingHigh != 0) {
+                char high = pendingHigh;
+                pendingHigh = 0;
+                if (Character.isLowSurrogate(c)) {
+                    if (Character.isLetter(Character.toCodePoint(high, c))) {
+                        out.append(high).append(c);
+                        needsLowerCase = true;
+                    }
+                    continue;
+                }
+            }
+
+            if (c < 128) {
+                if ((c >= 'a' && c <= 'z') || isWhitespace(c)) {
+                    out.append(c);
+                } else if (c >= 'A' && c <= 'Z') {
+                    if (asciiLowercase) {
+                        out.append((char) (c + ('a' - 'A')));
+                    } else {
+                        out.append(c);
+                        needsLowerCase = true;
+                    }
+                }
+            } else if (Character.isHighSurrogate(c)) {
+                pendingHigh = c;
+            } else if (Character.isLetter(c)) {
+                out.append(c);
+                needsLowerCase = true;
+            }
+        }
+
+        // Lowercasing is context sensitive outside ASCII (final sigma), so it applies to the whole text
+        split(needsLowerCase ? out.toString().toLowerCase() : out, words);
+    }
+
+    // Same words as split("\\s+"): [""] for an empty text, and an empty first word after leading whitespace
+    private static void split(CharSequence text, List<String> words) {
+        int length = text.length();
+        if (length == 0) {
+            words.add("");
+            return;
+        }
+
+        int firstWord = words.size();
+        int i = 0;
+        while (i < length) {
+            while (i < length && isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            words.add(text.subSequence(start, i).toString());
+        }
+
+        if (isWhitespace(text.charAt(0)) && words.size() > firstWord) {
+            words.add(firstWord, "");
+        }
+    }
+
+    // \b after the 's' holds unless the next code point is an ASCII word character or a non-spacing mark.
+    // That is the ASCII-only \b of JDK 19 and later; before it \b also took non-ASCII letters and digits as
+    // word characters ("A’sﬁ" split differently). The module is compiled for Java 21, so it never runs there
+    private static boolean isWordBoundaryBlocker(CharSequence text, int index) {
+        if (index >= text.length()) {
+            return false;
+        }
+        int codePoint = Character.codePointAt(text, index);
+        return (codePoint < 128 && (Character.isLetterOrDigit(codePoint) || codePoint == '_'))
+                || Character.getType(codePoint) == Character.NON_SPACING_MARK;
+    }
+
+    private static String toLowerCase(StringBuilder out) {
+        for (int i = 0; i < out.length(); i++) {
+            char c = out.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return out.toString().toLowerCase();
+            }
+        }
+        return out.length() == 0 ? "" : out.toString();
+    }
+
+    private static char fold(char c) {
+        char folded = FOLDED[c];
+        if (folded == UNKNOWN) {
+            folded = NO_FOLD;
+            if (Character.isLetter(c)) {
+                String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                for (int i = 0; i < decomposed.length(); i++) {
+                    if (decomposed.charAt(i) < 128) {
+                        folded = decomposed.charAt(i);
+                        break;
+                    }
+                }
+            }
+            FOLDED[c] = folded;
+        }
+        return folded;
+    }
+
+    private static int finalLineTerminatorLength(CharSequence text, int length) {
+        if (length >= 2 && text.charAt(length - 2) == '\r' && text.charAt(length - 1) == '\n') {
+            return 2;
+        }
+        return length >= 1 && isLineTerminator(text.charAt(length - 1)) ? 1 : 0;
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '’';
+    }
+
+    // The characters matched by the regex class \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
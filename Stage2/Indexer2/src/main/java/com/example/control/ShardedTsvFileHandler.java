@@ -0,0 +1,95 @@
+package com.example.control;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Keeps the rows of a book per word and appends them to one <c>/<cc>.shard file per prefix on flush(),
+// instead of opening and appending to a <word>.tsv file for every row
+public class ShardedTsvFileHandler extends TsvFileHandler {
+
+    private static final String DATAMART_DIRECTORY = "datamart/reverse_indexes_Indexer2";
+
+    private final Map<String, StringBuilder> rows = new HashMap<>();
+    // Shards appended to since the last compact()
+    private final Set<Path> appendedShards = new HashSet<>();
+
+    public ShardedTsvFileHandler(boolean positionalPostings) {
+        super(DEFAULT_MAX_OPEN_FILES, positionalPostings);
+    }
+
+    @Override
+    public void saveWordsToFile(String word, String bookId, int paragraphIndex, int count, String positions) {
+        String[] pathParts = bookId.split("[/\\\\]");
+        String bookIdOnly = pathParts[pathParts.length - 1];
+
+        // Same rows as the .tsv files, without the header
+        TsvRowFormat.appendRow(rows.computeIfAbsent(word, k -> new StringBuilder()), bookIdOnly, paragraphIndex,
+                count, positions);
+    }
+
+    @Override
+    public void saveRows(String word, String rows) {
+        this.rows.computeIfAbsent(word, k -> new StringBuilder()).append(rows);
+    }
+
+    // Shards are appended to from their term table, which the append overwrites
+    @Override
+    public Map<Path, Long> appendOffsets(Collection<String> terms) {
+        Map<Path, Long> offsets = new HashMap<>();
+        for (String term : terms) {
+            ShardFile shard = ShardFile.forWord(DATAMART_DIRECTORY, term);
+            if (!offsets.containsKey(shard.getPath())) {
+                try {
+                    offsets.put(shard.getPath(), shard.getAppendOffset());
+                } catch (IOException e) {
+                    // Unreadable table: the whole file is kept for the rollback
+                    System.out.println("Error while reading the shard file: " + shard.getPath());
+                    offsets.put(shard.getPath(), 0L);
+                }
+            }
+        }
+        return offsets;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        Map<Path, Map<String, byte[]>> shards = new HashMap<>();
+        for (Map.Entry<String, StringBuilder> entry : rows.entrySet()) {
+            shards.computeIfAbsent(ShardFile.forWord(DATAMART_DIRECTORY, entry.getKey()).getPath(), k -> new TreeMap<>())
+                    .put(entry.getKey(), entry.getValue().toString().getBytes(StandardCharsets.UTF_8));
+        }
+        rows.clear();
+
+        for (Map.Entry<Path, Map<String, byte[]>> shard : shards.entrySet()) {
+            try {
+                new ShardFile(shard.getKey()).append(shard.getValue());
+                appendedShards.add(shard.getKey());
+            } catch (IOException e) {
+                throw new IOException("Error while writing to the shard file: " + shard.getKey(), e);
+            }
+        }
+    }
+
+    // Rewrites the appended shards whose old term tables take more room than their rows,
+    // each word left with its rows in a single payload
+    @Override
+    public void compact() throws IOException {
+        int compacted = 0;
+        for (Path shard : appendedShards) {
+            if (new ShardFile(shard).compactIfWasteful(ShardFile.CONCATENATE)) {
+                compacted++;
+            }
+        }
+        appendedShards.clear();
+        if (compacted > 0) {
+            System.out.println("Compacted " + compacted + " shard files");
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.control;
+
+import com.example.model.BookRun;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+// Single-pass in-memory indexing: the rows of many books are collected per term until the memory
+// budget is used up, then spilled as one run file sorted by term. merge() reads all runs at once
+// (a k-way merge on the term) and hands every term's rows to the datamart handler a single time,
+// so memory stays bounded and both the spills and the datamart writes are sequential.
+// The merge is written in chunks of terms within the same budget, each one announced to a MergeStep
+// first; the runs are kept until the caller has committed the merge, so after a crash it can resume
+// after the last chunk that was kept.
+//
+// Run file: term count, then for every term in order: UTF term, row byte count, the rows (UTF-8).
+public class SpimiIndexer {
+
+    // Rough JVM cost of one term entry: map node, String, StringBuilder headers
+    private static final int TERM_OVERHEAD_BYTES = 96;
+
+    private final Path runDirectory;
+    private final long memoryBudgetBytes;
+    private final boolean positionalPostings;
+    private final Map<String, StringBuilder> rows = new HashMap<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long bufferedBytes;
+
+    public SpimiIndexer(String runDirectory, long memoryBudgetBytes, boolean positionalPostings) {
+        this.runDirectory = Paths.get(runDirectory);
+        this.memoryBudgetBytes = Math.max(1, memoryBudgetBytes);
+        this.positionalPostings = positionalPostings;
+    }
+
+    // Called before a chunk of the merge is written: resumePoint is the last term written before it
+    // ("" for the first chunk), terms are the terms of the chunk in order
+    public interface MergeStep {
+        void begin(String resumePoint, Collection<String> terms) throws IOException;
+    }
+
+    // Picks up the runs a crash left on disk, to finish their merge
+    public int reopenRuns() {
+        List<Path> found = listRuns();
+        Collections.sort(found);
+        runs.clear();
+        runs.addAll(found);
+        return runs.size();
+    }
+
+    // Deletes the runs of a merge that was committed, or of books a crash left before their merge
+    public void clearRuns() {
+        deleteRuns(listRuns());
+        runs.clear();
+    }
+
+    public void addRun(String bookId, BookRun run) throws IOException {
+        String[] pathParts = bookId.split("[/\\\\]");
+        String bookIdOnly = pathParts[pathParts.length - 1];
+
+        run.forEachRow((term, paragraph, count, offsets, from) -> {
+            StringBuilder termRows = rows.get(term);
+            if (termRows == null) {
+                termRows = new StringBuilder();
+                rows.put(term, termRows);
+                bufferedBytes += TERM_OVERHEAD_BYTES + term.length();
+            }
+            int before = termRows.length();
+            TsvRowFormat.appendRow(termRows, bookIdOnly, paragraph, count,
+                    positionalPostings ? TsvRowFormat.encodePositions(offsets, from, count) : null);
+            bufferedBytes += termRows.length() - before;
+        });
+
+        if (bufferedBytes >= memoryBudgetBytes) {
+            spill();
+        }
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty() && runs.isEmpty();
+    }
+
+    // Writes the buffered terms in order as a new run and frees them
+    private void spill() throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(runDirectory);
+        Path runPath = runDirectory.resolve(String.format("run-%05d.spill", runs.size()));
+
+        List<String> sortedTerms = new ArrayList<>(rows.keySet());
+        Collections.sort(sortedTerms);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(runPath), 1 << 16))) {
+            out.writeInt(sortedTerms.size());
+            for (String term : sortedTerms) {
+                byte[] termRows = rows.get(term).toString().getBytes(StandardCharsets.UTF_8);
+                out.writeUTF(term);
+                out.writeInt(termRows.length);
+                out.write(termRows);
+            }
+        }
+        runs.add(runPath);
+        System.out.println("Spilled " + sortedTerms.size() + " terms (~" + bufferedBytes / 1024 + " KB) to " + runPath);
+
+        rows.clear();
+        bufferedBytes = 0;
+    }
+
+    // Merges every run into the handler, term by term, skipping the terms up to resumeAfter; runs hold
+    // their books in indexing order, so a term's rows come out in the same order as when the books are
+    // written one at a time
+    public int merge(TsvFileHandler handler, String resumeAfter, MergeStep step) throws IOException {
+        spill();
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                Comparator.comparing((RunReader reader) -> reader.term).thenComparingInt(reader -> reader.index));
+        List<RunReader> readers = new ArrayList<>();
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(i, runs.get(i));
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+            // Half the budget: a handler that buffers rows (the sharded layout) holds a copy until it is flushed
+            long chunkBudget = Math.max(1, memoryBudgetBytes / 2);
+            Map<String, String> chunk = new LinkedHashMap<>();
+            long chunkBytes = 0;
+            String resumePoint = resumeAfter;
+            ByteArrayOutputStream termRows = new ByteArrayOutputStream();
+            while (!queue.isEmpty()) {
+                String term = queue.peek().term;
+                termRows.reset();
+                while (!queue.isEmpty() && queue.peek().term.equals(term)) {
+                    RunReader reader = queue.poll();
+                    termRows.write(reader.rows);
+                    if (reader.next()) {
+                        queue.add(reader);
+                    }
+                }
+                if (term.compareTo(resumeAfter) <= 0) {
+                    // Written by a chunk kept before a crash
+                    continue;
+                }
+                chunk.put(term, termRows.toString(StandardCharsets.UTF_8));
+                chunkBytes += termRows.size();
+                if (chunkBytes >= chunkBudget) {
+                    resumePoint = writeChunk(handler, step, resumePoint, chunk);
+                    chunkBytes = 0;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(handler, step, resumePoint, chunk);
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+
+        return runs.size();
+    }
+
+    // Returns the last term of the chunk, where a merge resumes once the chunk is kept
+    private static String writeChunk(TsvFileHandler handler, MergeStep step, String resumePoint,
+                                     Map<String, String> chunk) throws IOException {
+        step.begin(resumePoint, chunk.keySet());
+        String lastTerm = resumePoint;
+        for (Map.Entry<String, String> entry : chunk.entrySet()) {
+            handler.saveRows(entry.getKey(), entry.getValue());
+            lastTerm = entry.getKey();
+        }
+        handler.flush();
+        chunk.clear();
+        return lastTerm;
+    }
+
+    private List<Path> listRuns() {
+        List<Path> found = new ArrayList<>();
+        File[] files = runDirectory.toFile().listFiles((dir, name) -> name.endsWith(".spill"));
+        if (files != null) {
+            for (File file : files) {
+                found.add(file.toPath());
+            }
+        }
+        return found;
+    }
+
+    private static void deleteRuns(List<Path> runPaths) {
+        for (Path runPath : runPaths) {
+            try {
+                Files.deleteIfExists(runPath);
+            } catch (IOException e) {
+                System.out.println("Error while deleting the run file: " + runPath);
+            }
+        }
+    }
+
+    // Streams one run, a term and its rows at a time
+    private static class RunReader implements Closeable {
+        private final int index;
+        private final DataInputStream in;
+        private int remaining;
+        private String term;
+        private byte[] rows;
+
+        private RunReader(int index, Path path) throws IOException {
+            this.index = index;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+            this.remaining = in.readInt();
+        }
+
+        private boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            term = in.readUTF();
+            rows = new byte[in.readInt()];
+            in.readFully(rows);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
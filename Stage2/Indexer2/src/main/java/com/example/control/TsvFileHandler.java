@@ -1,12 +1,51 @@
 package com.example.control;
 
 import com.example.interfaces.FileHandler;
+import com.example.model.BookRun;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.*;
 
 public class TsvFileHandler implements FileHandler {
 
+    // Same as Main.MAX_OPEN_FILES, for the handlers and indexers built without one
+    static final int DEFAULT_MAX_OPEN_FILES = 512;
+
+    // Word files stay open between rows, the least recently written one is closed past the cap
+    private final Map<String, BufferedWriter> openWriters;
+    private final Set<String> createdDirectories = new HashSet<>();
+    private final Set<String> filesWithHeader = new HashSet<>();
+    private final boolean positionalPostings;
+    // A writer closed by the pool cap can fail to flush its rows; the next flush() reports it
+    private IOException evictionFailure;
+
+    public TsvFileHandler() {
+        this(DEFAULT_MAX_OPEN_FILES, false);
+    }
+
+    // maxOpenFiles is at least 1, a smaller cap would close the writer that was just opened
+    public TsvFileHandler(int maxOpenFiles, boolean positionalPostings) {
+        int openFilesCap = Math.max(1, maxOpenFiles);
+        this.positionalPostings = positionalPostings;
+        this.openWriters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedWriter> eldest) {
+                if (size() > openFilesCap) {
+                    try {
+                        closeWriter(eldest.getKey(), eldest.getValue());
+                    } catch (IOException e) {
+                        if (evictionFailure == null) {
+                            evictionFailure = e;
+                        }
+                    }
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
     @Override
     public List<String> loadBooks() {
         // Logic to load the books (as described previously)
@@ -35,37 +74,132 @@ public class TsvFileHandler implements FileHandler {
         return lines;
     }
 
-    // Exception handling within the method without declaring throws IOException
-    public void saveWordsToFile(String word, String bookId, int paragraphIndex, int count) {
+    public void saveWordsToFile(String word, String bookId, int paragraphIndex, int count) throws IOException {
+        saveWordsToFile(word, bookId, paragraphIndex, count, null);
+    }
+
+    // Write errors are thrown, so a group with a missing row is never committed
+    public void saveWordsToFile(String word, String bookId, int paragraphIndex, int count, String positions)
+            throws IOException {
         String[] pathParts = bookId.split("[/\\\\]");
         String bookIdOnly = pathParts[pathParts.length - 1];
 
-        String subfolder = word.length() > 1 ? word.substring(0, 2) : word.substring(0, 1);
-        String directoryPath = "datamart/reverse_indexes_Indexer2/" + subfolder.charAt(0) + "/" + subfolder;
+        String directoryPath = directoryFor(word);
+        String filePath = directoryPath + "/" + word + ".tsv";
 
-        File dir = new File(directoryPath);
-        if (!dir.exists()) {
-            dir.mkdirs();
+        try {
+            BufferedWriter writer = openWriters.get(filePath);
+            if (writer == null) {
+                writer = openWriter(directoryPath, filePath);
+            }
+
+            writer.write(TsvRowFormat.appendRow(new StringBuilder(), bookIdOnly, paragraphIndex, count, positions)
+                    .toString());
+        } catch (IOException e) {
+            throw new IOException("Error while writing to the TSV file: " + filePath, e);
         }
+    }
 
+    // Appends rows already in the file format, each ending in '\n' (merged SPIMI runs)
+    public void saveRows(String word, String rows) throws IOException {
+        String directoryPath = directoryFor(word);
         String filePath = directoryPath + "/" + word + ".tsv";
-        File file = new File(filePath);
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
-            if (file.length() == 0) {
-                writer.write("Book_ID\tLine\tOccurrences");
-                writer.newLine();
+        try {
+            BufferedWriter writer = openWriters.get(filePath);
+            if (writer == null) {
+                writer = openWriter(directoryPath, filePath);
             }
+            writer.write(rows);
+        } catch (IOException e) {
+            throw new IOException("Error while writing to the TSV file: " + filePath, e);
+        }
+    }
 
-            String lineToAdd = bookIdOnly + "\t" + paragraphIndex + "\t" + count;
+    // Writes a book's sorted run: the rows of a term are consecutive, so each word file is opened once
+    public void saveRun(String bookId, BookRun run) throws IOException {
+        try {
+            run.forEachRow((term, paragraph, count, offsets, from) -> {
+                try {
+                    saveWordsToFile(term, bookId, paragraph, count,
+                            positionalPostings ? TsvRowFormat.encodePositions(offsets, from, count) : null);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-            writer.write(lineToAdd);
-            writer.newLine();
-        } catch (IOException e) {
-            System.out.println("Error while writing to the TSV file: " + filePath);
-            e.printStackTrace();
+    // The word files a group of runs appends to, each with its current length, for the progress manifest
+    public Map<Path, Long> appendOffsets(Collection<String> terms) {
+        Map<Path, Long> offsets = new HashMap<>();
+        for (String term : terms) {
+            File file = new File(directoryFor(term) + "/" + term + ".tsv");
+            offsets.put(file.toPath(), file.length());
         }
+        return offsets;
     }
 
+    // Closes every pooled writer, so all rows written so far are on disk; throws if any of them,
+    // or a writer closed earlier by the pool cap, failed to write its rows
+    public void flush() throws IOException {
+        IOException failure = evictionFailure;
+        evictionFailure = null;
+        for (Map.Entry<String, BufferedWriter> entry : openWriters.entrySet()) {
+            try {
+                closeWriter(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        openWriters.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
+    // Called after a group is committed, outside any group; word files are only appended to
+    public void compact() throws IOException {
+    }
+
+    private static String directoryFor(String word) {
+        String subfolder = word.length() > 1 ? word.substring(0, 2) : word.substring(0, 1);
+        return "datamart/reverse_indexes_Indexer2/" + subfolder.charAt(0) + "/" + subfolder;
+    }
+
+    private BufferedWriter openWriter(String directoryPath, String filePath) throws IOException {
+        if (createdDirectories.add(directoryPath)) {
+            File dir = new File(directoryPath);
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+        }
+
+        File file = new File(filePath);
+        // The file is only checked the first time it is opened, afterwards the header is known to be right
+        boolean checked = filesWithHeader.contains(filePath);
+        if (!checked && file.length() > 0) {
+            TsvRowFormat.checkHeader(file, positionalPostings);
+        }
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file, true));
+        if (!checked && file.length() == 0) {
+            writer.write(TsvRowFormat.header(positionalPostings));
+            writer.write('\n');
+        }
+        filesWithHeader.add(filePath);
+        openWriters.put(filePath, writer);
+        return writer;
+    }
+
+    private static void closeWriter(String filePath, BufferedWriter writer) throws IOException {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new IOException("Error while closing the TSV file: " + filePath, e);
+        }
+    }
 }
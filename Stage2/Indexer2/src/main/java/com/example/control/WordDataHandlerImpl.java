@@ -11,19 +11,31 @@ import java.util.*;
 
 public class WordDataHandlerImpl implements WordDataHandler {
 
-    private static final StanfordCoreNLP pipeline;
+    // Loaded on first use, so a warm lemma cache can skip loading the CoreNLP models entirely
+    private static class PipelineHolder {
+        private static final StanfordCoreNLP pipeline = createPipeline(false);
+    }
+
+    // Splits on whitespace only, so every cleaned word maps to exactly one token
+    private static class BulkPipelineHolder {
+        private static final StanfordCoreNLP pipeline = createPipeline(true);
+    }
 
-    static {
+    private static StanfordCoreNLP createPipeline(boolean whitespaceTokens) {
         Properties props = new Properties();
         props.setProperty("annotators", "tokenize,ssplit,pos,lemma");
         props.setProperty("tokenize.language", "en");
-        pipeline = new StanfordCoreNLP(props);
+        if (whitespaceTokens) {
+            props.setProperty("tokenize.whitespace", "true");
+        }
+        return new StanfordCoreNLP(props);
     }
+
     @Override
     public String lemmAdd(String word) {
         word = word.toLowerCase();
         CoreDocument document = new CoreDocument(word);
-        pipeline.annotate(document);
+        PipelineHolder.pipeline.annotate(document);
 
         for (CoreLabel token : document.tokens()) {
             return token.get(CoreAnnotations.LemmaAnnotation.class);
@@ -31,6 +43,45 @@ public class WordDataHandlerImpl implements WordDataHandler {
         return word;
     }
 
+    @Override
+    public List<String> lemmAddAll(List<String> words) {
+        StringBuilder text = new StringBuilder();
+        int expectedTokens = 0;
+        for (String word : words) {
+            if (!word.isEmpty()) {
+                if (expectedTokens > 0) {
+                    text.append(' ');
+                }
+                text.append(word.toLowerCase());
+                expectedTokens++;
+            }
+        }
+
+        List<String> lemmas = new ArrayList<>(words.size());
+        if (expectedTokens == 0) {
+            lemmas.addAll(words);
+            return lemmas;
+        }
+
+        CoreDocument document = new CoreDocument(text.toString());
+        BulkPipelineHolder.pipeline.annotate(document);
+        List<CoreLabel> tokens = document.tokens();
+
+        if (tokens.size() != expectedTokens) {
+            // Should not happen with whitespace tokenization, but never misalign words
+            for (String word : words) {
+                lemmas.add(word.isEmpty() ? word : lemmAdd(word));
+            }
+            return lemmas;
+        }
+
+        int tokenIndex = 0;
+        for (String word : words) {
+            lemmas.add(word.isEmpty() ? word : tokens.get(tokenIndex++).get(CoreAnnotations.LemmaAnnotation.class));
+        }
+        return lemmas;
+    }
+
     @Override
     public String cleanWord(String word) {
         word = word.replaceAll("(['’]s)$", "");
@@ -4,6 +4,8 @@ import java.util.List;
 
 public interface WordDataHandler {
     String lemmAdd(String word);
+    // Lemmatizes a whole paragraph in one pass, returning one lemma per input word (empty words stay empty)
+    List<String> lemmAddAll(List<String> words);
     String cleanWord(String word);
     List<String> cleanAndSplit(String paragraph);
 }
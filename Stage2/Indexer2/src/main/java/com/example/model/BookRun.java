@@ -0,0 +1,79 @@
+package com.example.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Every row of one book, aggregated in memory before anything is written:
+// term -> (paragraph, count) pairs in paragraph order, emitted as a single run sorted by term.
+// The word offsets behind each count are kept too, for the positional TSV rows.
+public class BookRun {
+
+    public interface RowConsumer {
+        // offsets[from .. from + count) are the term's word offsets in the paragraph, ascending
+        void accept(String term, int paragraph, int count, int[] offsets, int from);
+    }
+
+    private final Map<String, Rows> rows = new HashMap<>();
+    private long occurrences;
+
+    // Paragraphs and offsets must be added in increasing order, repeated words of a paragraph add up
+    public void add(String term, int paragraph, int offset) {
+        rows.computeIfAbsent(term, k -> new Rows()).add(paragraph, offset);
+        occurrences++;
+    }
+
+    public int getTermCount() {
+        return rows.size();
+    }
+
+    public long getOccurrences() {
+        return occurrences;
+    }
+
+    public List<String> sortedTerms() {
+        List<String> terms = new ArrayList<>(rows.keySet());
+        Collections.sort(terms);
+        return terms;
+    }
+
+    public void forEachRow(RowConsumer consumer) {
+        for (String term : sortedTerms()) {
+            Rows termRows = rows.get(term);
+            int from = 0;
+            for (int i = 0; i < termRows.size; i++) {
+                int count = termRows.pairs[i * 2 + 1];
+                consumer.accept(term, termRows.pairs[i * 2], count, termRows.offsets, from);
+                from += count;
+            }
+        }
+    }
+
+    private static class Rows {
+        private int[] pairs = new int[4];
+        private int size;
+        private int[] offsets = new int[2];
+        private int offsetCount;
+
+        private void add(int paragraph, int offset) {
+            if (offsetCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[offsetCount++] = offset;
+
+            if (size > 0 && pairs[size * 2 - 2] == paragraph) {
+                pairs[size * 2 - 1]++;
+                return;
+            }
+            if (size * 2 == pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[size * 2] = paragraph;
+            pairs[size * 2 + 1] = 1;
+            size++;
+        }
+    }
+}
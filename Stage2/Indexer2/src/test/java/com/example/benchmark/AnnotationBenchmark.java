@@ -0,0 +1,108 @@
+package com.example.benchmark;
+
+import com.example.control.DictionaryWordDataHandler;
+import com.example.control.WordDataHandlerImpl;
+import com.example.interfaces.WordDataHandler;
+import com.example.model.LemmaTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Per-word versus per-paragraph CoreNLP annotation on paragraphs taken from datalake/books,
+// and dictionary lookups in a LemmaTable built from the per-word lemmas of the same words
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AnnotationBenchmark {
+
+    private static final int PARAGRAPHS = 200;
+
+    private WordDataHandler wordDataHandler;
+    private WordDataHandler dictionaryHandler;
+    private List<List<String>> paragraphs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        wordDataHandler = new WordDataHandlerImpl();
+        paragraphs = new ArrayList<>();
+
+        File[] books = new File("datalake/books").listFiles((dir, name) -> name.endsWith(".txt"));
+        if (books == null) {
+            throw new IOException("No books found in datalake/books");
+        }
+        for (File book : books) {
+            for (String paragraph : Files.readAllLines(book.toPath(), StandardCharsets.UTF_8)) {
+                if (paragraphs.size() == PARAGRAPHS) {
+                    break;
+                }
+                List<String> words = new ArrayList<>();
+                for (String word : wordDataHandler.cleanAndSplit(paragraph)) {
+                    words.add(wordDataHandler.cleanWord(word));
+                }
+                if (words.size() > 1) {
+                    paragraphs.add(words);
+                }
+            }
+        }
+
+        Map<String, String> lemmas = new HashMap<>();
+        for (List<String> words : paragraphs) {
+            for (String word : words) {
+                if (!word.isEmpty()) {
+                    lemmas.put(word.toLowerCase(), wordDataHandler.lemmAdd(word));
+                }
+            }
+        }
+        dictionaryHandler = new DictionaryWordDataHandler(wordDataHandler, LemmaTable.fromMap(lemmas));
+    }
+
+    @Benchmark
+    public void perWordAnnotation(Blackhole blackhole) {
+        for (List<String> words : paragraphs) {
+            for (String word : words) {
+                blackhole.consume(wordDataHandler.lemmAdd(word));
+            }
+        }
+    }
+
+    @Benchmark
+    public void perParagraphAnnotation(Blackhole blackhole) {
+        for (List<String> words : paragraphs) {
+            blackhole.consume(wordDataHandler.lemmAddAll(words));
+        }
+    }
+
+    @Benchmark
+    public void dictionaryLookup(Blackhole blackhole) {
+        for (List<String> words : paragraphs) {
+            for (String word : words) {
+                blackhole.consume(dictionaryHandler.lemmAdd(word));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(AnnotationBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
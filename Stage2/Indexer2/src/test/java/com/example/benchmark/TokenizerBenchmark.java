@@ -0,0 +1,97 @@
+package com.example.benchmark;
+
+import com.example.control.ScanningWordDataHandler;
+import com.example.control.WordDataHandlerImpl;
+import com.example.interfaces.WordDataHandler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Regex cleanAndSplit/cleanWord versus the single-pass scanner on the paragraphs of datalake/books.
+// The setup first checks that both produce exactly the same output.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final int PARAGRAPHS = 5_000;
+    private static final List<String> EDGE_CASES = Arrays.asList(
+            "", "   ", " The whale's tail", "It’s the Captain's log", "ΟΔΥΣΣΕΥΣ", "İstanbul café",
+            "x'ś y", "_private 1984 a1 ", "\uD800'\uDC00 text", "end's\r\n", "ﬁne naïve Æsir");
+
+    private final WordDataHandler regexHandler = new WordDataHandlerImpl();
+    private final ScanningWordDataHandler scanningHandler = new ScanningWordDataHandler(regexHandler);
+    private List<String> paragraphs;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        paragraphs = new ArrayList<>(EDGE_CASES);
+        File[] books = new File("datalake/books").listFiles((dir, name) -> name.endsWith(".txt"));
+        if (books != null) {
+            for (File book : books) {
+                paragraphs.addAll(Files.readAllLines(book.toPath(), StandardCharsets.UTF_8));
+                if (paragraphs.size() >= PARAGRAPHS) {
+                    break;
+                }
+            }
+        }
+
+        for (String paragraph : paragraphs) {
+            List<String> expected = regexHandler.cleanAndSplit(paragraph);
+            List<String> actual = scanningHandler.cleanAndSplit(paragraph);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("cleanAndSplit disagrees on '" + paragraph + "'");
+            }
+            for (String word : paragraph.split("\\s+")) {
+                if (!regexHandler.cleanWord(word).equals(scanningHandler.cleanWord(word))) {
+                    throw new IllegalStateException("cleanWord disagrees on '" + word + "'");
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void regexTokenizer(Blackhole blackhole) {
+        for (String paragraph : paragraphs) {
+            for (String word : regexHandler.cleanAndSplit(paragraph)) {
+                blackhole.consume(regexHandler.cleanWord(word));
+            }
+        }
+    }
+
+    @Benchmark
+    public void scanningTokenizer(Blackhole blackhole) {
+        List<String> words = new ArrayList<>();
+        for (String paragraph : paragraphs) {
+            words.clear();
+            scanningHandler.cleanAndSplit(paragraph, words);
+            for (String word : words) {
+                blackhole.consume(scanningHandler.cleanWord(word));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TokenizerBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.control;
+
+import com.example.interfaces.ProgressManifest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Completed book ids, kept so that every book is indexed exactly once across crashes:
+//   completed.snapshot  every id at the last snapshot, replaced by an atomic rename
+//   completed.wal       one record per group committed since then (count, ids, CRC32), one fsync per group
+//   pending.undo        the group being written: its ids, the resume point of a group written in steps
+//                       and, for every file it changes in place, the original length and the bytes it overwrites
+// A pending.undo left by a crash belongs to a group that is either in the log (then it is
+// dropped) or not (then its files are restored and the books are indexed again). A group written in
+// steps replaces the journal at every step, so only the last step is restored and the journal is
+// kept with its resume point until the writer finishes the group.
+// Data files are not fsync'd, so this covers a crash of the indexer, not a power loss.
+public class ProgressManifestControl implements ProgressManifest {
+
+    private static final int SNAPSHOT_MAGIC = 0x504D534E; // "PMSN"
+    private static final int UNDO_MAGIC = 0x504D5544; // "PMUD", no resume point
+    private static final int STEP_UNDO_MAGIC = 0x504D5553; // "PMUS"
+    private static final long SNAPSHOT_WAL_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final Path snapshotPath;
+    private final Path walPath;
+    private final Path undoPath;
+    private final Set<Integer> completed = new HashSet<>();
+    // Group of the step journal on disk, and the resume point recover() found in it
+    private final List<Integer> resumeGroup = new ArrayList<>();
+    private String resumePoint;
+
+    public ProgressManifestControl(String directory) {
+        this.directory = Paths.get(directory);
+        this.snapshotPath = this.directory.resolve("completed.snapshot");
+        this.walPath = this.directory.resolve("completed.wal");
+        this.undoPath = this.directory.resolve("pending.undo");
+    }
+
+    @Override
+    public void recover() throws IOException {
+        completed.clear();
+        resumeGroup.clear();
+        resumePoint = null;
+        if (Files.exists(snapshotPath)) {
+            DataInputStream in = checkedInput(Files.readAllBytes(snapshotPath), snapshotPath);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a progress snapshot: " + snapshotPath);
+            }
+            readIds(in, completed);
+        }
+        replayWal();
+
+        if (Files.exists(undoPath)) {
+            DataInputStream in = checkedInput(Files.readAllBytes(undoPath), undoPath);
+            int magic = in.readInt();
+            if (magic != UNDO_MAGIC && magic != STEP_UNDO_MAGIC) {
+                throw new IOException("Not an undo journal: " + undoPath);
+            }
+            List<Integer> group = new ArrayList<>();
+            readIds(in, group);
+            String stepResumePoint = magic == STEP_UNDO_MAGIC ? in.readUTF() : null;
+            if (completed.containsAll(group)) {
+                Files.delete(undoPath);
+                return;
+            }
+            int files = rollBack(in);
+            System.out.println("Rolled back " + files + " files of an unfinished group of " + group.size() + " books");
+            if (stepResumePoint == null) {
+                Files.delete(undoPath);
+                return;
+            }
+            // The steps before survive, the journal stays until the writer has finished the group
+            writeUndo(STEP_UNDO_MAGIC, group, stepResumePoint, Collections.emptyMap());
+            resumeGroup.addAll(group);
+            resumePoint = stepResumePoint;
+        }
+    }
+
+    @Override
+    public boolean isCompleted(int bookId) {
+        return completed.contains(bookId);
+    }
+
+    @Override
+    public void beginGroup(Collection<Integer> bookIds, Map<Path, Long> appendOffsets) throws IOException {
+        if (Files.exists(undoPath)) {
+            throw new IOException("An unfinished group must be recovered first: " + undoPath);
+        }
+        if (appendOffsets.isEmpty()) {
+            // Nothing is changed in place, replaying the group is harmless
+            return;
+        }
+        writeUndo(UNDO_MAGIC, bookIds, null, appendOffsets);
+    }
+
+    @Override
+    public void beginStep(Collection<Integer> bookIds, String resumePoint, Map<Path, Long> appendOffsets) throws IOException {
+        if (Files.exists(undoPath) && (resumeGroup.size() != bookIds.size() || !resumeGroup.containsAll(bookIds))) {
+            throw new IOException("An unfinished group must be recovered or finished first: " + undoPath);
+        }
+        // Replacing the journal of the previous step keeps its files: it is the commit point of that step
+        writeUndo(STEP_UNDO_MAGIC, bookIds, resumePoint, appendOffsets);
+        resumeGroup.clear();
+        resumeGroup.addAll(bookIds);
+    }
+
+    @Override
+    public String getResumePoint() {
+        return resumePoint;
+    }
+
+    @Override
+    public Collection<Integer> getResumeGroup() {
+        return resumeGroup;
+    }
+
+    private void writeUndo(int magic, Collection<Integer> bookIds, String stepResumePoint,
+                           Map<Path, Long> appendOffsets) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(magic);
+            writeIds(out, bookIds);
+            if (stepResumePoint != null) {
+                out.writeUTF(stepResumePoint);
+            }
+            out.writeInt(appendOffsets.size());
+            for (Map.Entry<Path, Long> entry : appendOffsets.entrySet()) {
+                Path path = entry.getKey();
+                out.writeUTF(path.toString());
+                if (!Files.exists(path)) {
+                    out.writeLong(-1);
+                    continue;
+                }
+                long length = Files.size(path);
+                long from = Math.min(entry.getValue(), length);
+                out.writeLong(length);
+                out.writeLong(from);
+                byte[] overwritten = readRange(path, from, (int) (length - from));
+                out.writeInt(overwritten.length);
+                out.write(overwritten);
+            }
+        }
+        // Complete and on disk before the first data byte is written, or not there at all
+        writeDurably(undoPath, withChecksum(bytes));
+    }
+
+    @Override
+    public void commitGroup(Collection<Integer> bookIds) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeIds(out, bookIds);
+        }
+        Files.createDirectories(directory);
+        try (FileChannel wal = FileChannel.open(walPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            wal.write(ByteBuffer.wrap(withChecksum(bytes)));
+            wal.force(false);
+        }
+        completed.addAll(bookIds);
+        Files.deleteIfExists(undoPath);
+        resumeGroup.clear();
+        resumePoint = null;
+
+        if (Files.size(walPath) >= SNAPSHOT_WAL_BYTES) {
+            snapshot();
+        }
+    }
+
+    // Folds the log into a new snapshot; a crash before the log is emptied only replays ids already in it
+    private void snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            List<Integer> ids = new ArrayList<>(completed);
+            Collections.sort(ids);
+            writeIds(out, ids);
+        }
+        writeDurably(snapshotPath, withChecksum(bytes));
+        try (FileChannel wal = FileChannel.open(walPath, StandardOpenOption.WRITE)) {
+            wal.truncate(0);
+            wal.force(false);
+        }
+    }
+
+    // Stops at the first torn or corrupt record, which is cut off so later groups append after a valid one
+    private void replayWal() throws IOException {
+        if (!Files.exists(walPath)) {
+            return;
+        }
+        ByteBuffer wal = ByteBuffer.wrap(Files.readAllBytes(walPath));
+        int valid = 0;
+        while (wal.remaining() >= 8) {
+            int count = wal.getInt(valid);
+            long recordLength = 4 + 4L * count + 4;
+            if (count < 0 || recordLength > wal.limit() - valid) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(wal.array(), valid, (int) recordLength - 4);
+            if ((int) crc.getValue() != wal.getInt(valid + (int) recordLength - 4)) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                completed.add(wal.getInt(valid + 4 + 4 * i));
+            }
+            valid += (int) recordLength;
+            wal.position(valid);
+        }
+        if (valid < wal.limit()) {
+            System.out.println("Discarding a torn progress log record at byte " + valid);
+            try (FileChannel channel = FileChannel.open(walPath, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    private int rollBack(DataInputStream in) throws IOException {
+        int files = in.readInt();
+        for (int i = 0; i < files; i++) {
+            Path path = Paths.get(in.readUTF());
+            long length = in.readLong();
+            if (length < 0) {
+                // Created by the unfinished group
+                Files.deleteIfExists(path);
+                continue;
+            }
+            long from = in.readLong();
+            byte[] overwritten = new byte[in.readInt()];
+            in.readFully(overwritten);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(overwritten);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, from + buffer.position());
+                }
+                channel.truncate(length);
+            }
+        }
+        return files;
+    }
+
+    private static void writeIds(DataOutputStream out, Collection<Integer> ids) throws IOException {
+        out.writeInt(ids.size());
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static void readIds(DataInputStream in, Collection<Integer> ids) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            ids.add(in.readInt());
+        }
+    }
+
+    private static byte[] withChecksum(ByteArrayOutputStream bytes) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt((int) crc.getValue());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream checkedInput(byte[] bytes, Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, Math.max(0, bytes.length - 4));
+        if (bytes.length < 4 || (int) crc.getValue() != ByteBuffer.wrap(bytes).getInt(bytes.length - 4)) {
+            throw new IOException("Corrupt progress file (checksum mismatch): " + path);
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+    }
+
+    private static byte[] readRange(Path path, long from, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file: " + path);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    // Written and fsync'd under a temporary name, then renamed into place
+    private void writeDurably(Path target, byte[] bytes) throws IOException {
+        Files.createDirectories(directory);
+        Path tempPath = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,441 @@
+package com.example.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// All the words of one two-letter prefix in a single <c>/<cc>.shard file:
+// appended payloads, then a term table sorted by term (term -> extents) and a fixed footer.
+// Appending writes the new payloads, table and footer after the end of the file, so existing
+// postings are never copied and the old footer stays the valid one until the new one is complete;
+// a term read back returns its payloads in append order.
+// The tables left behind are reclaimed by compactIfWasteful(), which rewrites the file under a
+// temporary name and merges the extents of every term into one. A new shard is written the same way,
+// so a shard always has a complete footer.
+//
+// Term table: one record per term (UTF term, extent count, extents as long offset and int length),
+// then the int offset of every record within the table, then the term count. The offsets are a
+// fixed-width index, so a single term is found by a binary search that reads only the probed records.
+public class ShardFile {
+
+    public static final String EXTENSION = ".shard";
+    private static final int MAGIC = 0x53485244; // "SHRD"
+    private static final int FOOTER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 4;
+    private static final int EXTENT_SIZE = 12;
+    // Bytes read at a time when looking for the last complete footer after a torn append
+    private static final int SCAN_BLOCK_SIZE = 1 << 16;
+
+    // Rows of text: the payloads of a term merge by concatenation
+    public static final PayloadMerger CONCATENATE = payloads -> {
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        for (byte[] payload : payloads) {
+            merged.write(payload);
+        }
+        return merged.toByteArray();
+    };
+
+    private final Path path;
+
+    public ShardFile(Path path) {
+        this.path = path;
+    }
+
+    // Turns the payloads of one term, oldest first, into the single payload a compacted shard keeps
+    public interface PayloadMerger {
+        byte[] merge(List<byte[]> payloads) throws IOException;
+    }
+
+    // <root>/<c>/<cc>.shard, the file that replaces the <root>/<c>/<cc>/ directory of a word
+    public static ShardFile forWord(String root, String word) {
+        String firstLetter = word.substring(0, 1);
+        String twoFirstLetters = word.length() > 1 ? word.substring(0, 2) : firstLetter;
+        return new ShardFile(Paths.get(root, firstLetter, twoFirstLetters + EXTENSION));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // Where the next append starts writing: the end of the last complete footer
+    public long getAppendOffset() throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return locateTable(channel).end;
+        }
+    }
+
+    // The payloads appended for term, oldest first, or an empty list when the term is not in the shard
+    public List<byte[]> read(String term) throws IOException {
+        List<byte[]> payloads = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return payloads;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            TableBounds bounds = locateTable(channel);
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, bounds.offset, bounds.length);
+            for (long[] extent : findExtents(table, term)) {
+                payloads.add(readFully(channel, extent[0], (int) extent[1]));
+            }
+        }
+        return payloads;
+    }
+
+    // Every term of the shard with its payloads, in term order
+    public Map<String, List<byte[]>> readAll() throws IOException {
+        Map<String, List<byte[]>> terms = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return terms;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            TermTable table = readTable(channel);
+            for (int i = 0; i < table.terms.length; i++) {
+                List<byte[]> payloads = new ArrayList<>(table.extents.get(i).size());
+                for (long[] extent : table.extents.get(i)) {
+                    payloads.add(readFully(channel, extent[0], (int) extent[1]));
+                }
+                terms.put(table.terms[i], payloads);
+            }
+        }
+        return terms;
+    }
+
+    // Appends one payload per term and writes the term table once for the whole batch
+    public void append(Map<String, byte[]> payloads) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            TreeMap<String, List<long[]>> table = new TreeMap<>();
+            writeReplacement(channel -> writePayloads(channel, 0, payloads, table), table);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            TermTable existing = readTable(channel);
+            TreeMap<String, List<long[]>> table = new TreeMap<>();
+            for (int i = 0; i < existing.terms.length; i++) {
+                table.put(existing.terms[i], existing.extents.get(i));
+            }
+            // Whatever follows the last complete footer is a torn append, dropped before writing
+            channel.truncate(existing.bounds.end);
+            long position = writePayloads(channel, existing.bounds.end, payloads, table);
+            writeTable(channel, position, table);
+        }
+    }
+
+    // Rewrites the shard with only the payloads its table points at once the dead bytes (tables replaced
+    // by later appends, torn appends) outweigh the live ones; the payloads of a term are merged into one
+    // so its extents do not keep growing with every append. The copy replaces the file by a rename,
+    // so it must not run inside a progress manifest group, whose undo journal only covers appends.
+    public boolean compactIfWasteful(PayloadMerger merger) throws IOException {
+        if (!Files.exists(path) || Files.size(path) == 0) {
+            return false;
+        }
+        TermTable existing;
+        long size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            existing = readTable(channel);
+            size = channel.size();
+        }
+        long liveBytes = existing.bounds.length + FOOTER_SIZE;
+        for (List<long[]> extents : existing.extents) {
+            for (long[] extent : extents) {
+                liveBytes += extent[1];
+            }
+        }
+        if (size - liveBytes <= liveBytes) {
+            return false;
+        }
+
+        TreeMap<String, List<long[]>> table = new TreeMap<>();
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            writeReplacement(target -> {
+                long position = 0;
+                for (int i = 0; i < existing.terms.length; i++) {
+                    List<long[]> extents = existing.extents.get(i);
+                    long length;
+                    if (extents.size() == 1) {
+                        length = extents.get(0)[1];
+                        transferFully(source, extents.get(0)[0], length, target, position);
+                    } else {
+                        List<byte[]> payloads = new ArrayList<>(extents.size());
+                        for (long[] extent : extents) {
+                            payloads.add(readFully(source, extent[0], (int) extent[1]));
+                        }
+                        byte[] merged = merger.merge(payloads);
+                        length = merged.length;
+                        writeFully(target, position, ByteBuffer.wrap(merged));
+                    }
+                    List<long[]> mergedExtents = new ArrayList<>(1);
+                    mergedExtents.add(new long[]{position, length});
+                    table.put(existing.terms[i], mergedExtents);
+                    position += length;
+                }
+                return position;
+            }, table);
+        }
+        return true;
+    }
+
+    private interface PayloadWriter {
+        long write(FileChannel channel) throws IOException;
+    }
+
+    // Writes payloads and table to <shard>.tmp and renames it over the shard
+    private void writeReplacement(PayloadWriter payloadWriter, TreeMap<String, List<long[]>> table)
+            throws IOException {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeTable(channel, payloadWriter.write(channel), table);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static long writePayloads(FileChannel channel, long position, Map<String, byte[]> payloads,
+                                      TreeMap<String, List<long[]>> table) throws IOException {
+        for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+            byte[] payload = entry.getValue();
+            long offset = position;
+            writeFully(channel, offset, ByteBuffer.wrap(payload));
+            table.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(new long[]{offset, payload.length});
+            position += payload.length;
+        }
+        return position;
+    }
+
+    private static void writeTable(FileChannel channel, long position, TreeMap<String, List<long[]>> table)
+            throws IOException {
+        ByteArrayOutputStream tableBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(tableBytes)) {
+            int[] recordOffsets = new int[table.size()];
+            int index = 0;
+            for (Map.Entry<String, List<long[]>> entry : table.entrySet()) {
+                recordOffsets[index++] = out.size();
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (long[] extent : entry.getValue()) {
+                    out.writeLong(extent[0]);
+                    out.writeInt((int) extent[1]);
+                }
+            }
+            for (int recordOffset : recordOffsets) {
+                out.writeInt(recordOffset);
+            }
+            out.writeInt(table.size());
+        }
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE)
+                .putLong(position).putInt(tableBytes.size()).putInt(MAGIC);
+        footer.flip();
+
+        writeFully(channel, position, ByteBuffer.wrap(tableBytes.toByteArray()));
+        writeFully(channel, position + tableBytes.size(), footer);
+    }
+
+    // The extents of term, found by a binary search of the record offsets at the end of the table
+    private static List<long[]> findExtents(ByteBuffer table, String term) throws IOException {
+        int count = table.getInt(table.limit() - 4);
+        int indexStart = table.limit() - 4 - count * INDEX_ENTRY_SIZE;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            ByteBuffer record = table.duplicate().position(table.getInt(indexStart + middle * INDEX_ENTRY_SIZE));
+            int comparison = readUTF(record).compareTo(term);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                int extents = record.getInt();
+                List<long[]> list = new ArrayList<>(extents);
+                for (int e = 0; e < extents; e++) {
+                    list.add(new long[]{record.getLong(), record.getInt()});
+                }
+                return list;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    // A term written with DataOutput.writeUTF: unsigned short length, then modified UTF-8
+    private static String readUTF(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[(buffer.getShort(buffer.position()) & 0xFFFF) + 2];
+        buffer.get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+
+    // The whole table of the last complete footer, for the writes that rewrite it
+    private TermTable readTable(FileChannel channel) throws IOException {
+        TableBounds bounds = locateTable(channel);
+        TermTable table = decodeTable(channel, bounds);
+        if (table == null) {
+            throw new IOException("Corrupt shard file: " + path);
+        }
+        return table;
+    }
+
+    // The table of the last complete footer. A footer is normally the last 16 bytes; after a crash
+    // in the middle of an append the file is searched backwards for the footer the append left intact,
+    // and a candidate is only taken once its whole table decodes.
+    private TableBounds locateTable(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < FOOTER_SIZE) {
+            throw new IOException("Truncated shard file: " + path);
+        }
+        TableBounds bounds = boundsEndingAt(channel, size);
+        if (bounds != null) {
+            return bounds;
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+        long blockEnd = size - 1;
+        while (blockEnd >= FOOTER_SIZE) {
+            long blockStart = Math.max(0, blockEnd - SCAN_BLOCK_SIZE + 4);
+            block.clear().limit((int) (blockEnd - blockStart));
+            while (block.hasRemaining()) {
+                if (channel.read(block, blockStart + block.position()) < 0) {
+                    throw new IOException("Unexpected end of shard file");
+                }
+            }
+            // Candidate footer ends, from the latest one back; the magic number is their last 4 bytes
+            for (int i = block.limit() - 4; i >= 0; i--) {
+                long end = blockStart + i + 4;
+                if (end >= FOOTER_SIZE && block.getInt(i) == MAGIC) {
+                    bounds = boundsEndingAt(channel, end);
+                    if (bounds != null && decodeTable(channel, bounds) != null) {
+                        System.out.println("Ignoring " + (size - end) + " bytes of a torn append in " + path);
+                        return bounds;
+                    }
+                }
+            }
+            blockEnd = blockStart + 3;
+        }
+        throw new IOException("Corrupt shard file: " + path);
+    }
+
+    // The table whose footer ends at end, or null when no complete footer ends there
+    private static TableBounds boundsEndingAt(FileChannel channel, long end) throws IOException {
+        ByteBuffer footer = ByteBuffer.wrap(readFully(channel, end - FOOTER_SIZE, FOOTER_SIZE));
+        long tableOffset = footer.getLong();
+        int tableLength = footer.getInt();
+        if (footer.getInt() != MAGIC || tableOffset < 0 || tableLength < 4
+                || tableOffset + tableLength + FOOTER_SIZE != end) {
+            return null;
+        }
+        int count = ByteBuffer.wrap(readFully(channel, tableOffset + tableLength - 4, 4)).getInt();
+        if (count < 0 || count > (tableLength - 4) / INDEX_ENTRY_SIZE) {
+            return null;
+        }
+        return new TableBounds(tableOffset, tableLength, end);
+    }
+
+    // The decoded table, or null when its records and index do not agree
+    private static TermTable decodeTable(FileChannel channel, TableBounds bounds) throws IOException {
+        ByteBuffer table = ByteBuffer.wrap(readFully(channel, bounds.offset, bounds.length));
+        int count = table.getInt(bounds.length - 4);
+        int indexStart = bounds.length - 4 - count * INDEX_ENTRY_SIZE;
+        TermTable decoded = new TermTable(bounds, count);
+        try {
+            for (int i = 0; i < count; i++) {
+                if (table.position() != table.getInt(indexStart + i * INDEX_ENTRY_SIZE)
+                        || table.position() + 2 > indexStart) {
+                    return null;
+                }
+                decoded.terms[i] = readUTF(table);
+                if (i > 0 && decoded.terms[i - 1].compareTo(decoded.terms[i]) >= 0) {
+                    return null;
+                }
+                int extents = table.getInt();
+                if (extents < 0 || extents > (indexStart - table.position()) / EXTENT_SIZE) {
+                    return null;
+                }
+                List<long[]> list = new ArrayList<>(extents);
+                for (int e = 0; e < extents; e++) {
+                    long[] extent = {table.getLong(), table.getInt()};
+                    if (extent[0] < 0 || extent[1] < 0 || extent[0] + extent[1] > bounds.offset) {
+                        return null;
+                    }
+                    list.add(extent);
+                }
+                decoded.extents.add(list);
+            }
+        } catch (RuntimeException | IOException e) {
+            // Ran past the records: not a table
+            return null;
+        }
+        return table.position() == indexStart ? decoded : null;
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of shard file");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void writeFully(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+    }
+
+    private static void transferFully(FileChannel source, long from, long length, FileChannel target, long to)
+            throws IOException {
+        long copied = 0;
+        target.position(to);
+        while (copied < length) {
+            long transferred = source.transferTo(from + copied, length - copied, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of shard file");
+            }
+            copied += transferred;
+        }
+    }
+
+    private static class TableBounds {
+        private final long offset;
+        private final int length;
+        // End of the footer, the file may go on with the remains of a torn append
+        private final long end;
+
+        private TableBounds(long offset, int length, long end) {
+            this.offset = offset;
+            this.length = length;
+            this.end = end;
+        }
+    }
+
+    private static class TermTable {
+        private final TableBounds bounds;
+        private final String[] terms;
+        private final List<List<long[]>> extents;
+
+        private TermTable(TableBounds bounds, int count) {
+            this.bounds = bounds;
+            this.terms = new String[count];
+            this.extents = new ArrayList<>(count);
+        }
+    }
+}
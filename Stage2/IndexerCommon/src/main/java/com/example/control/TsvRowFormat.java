@@ -0,0 +1,56 @@
+package com.example.control;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+// Rows of the Indexer2 datamart, for every writer of it (Indexer2's word files, shards and SPIMI runs,
+// and Indexer1's TSV sink): a <word>.tsv file starts with a header line, then holds one
+// Book_ID, Line, Occurrences[, Positions] row per line of a book the word appears in
+public class TsvRowFormat {
+
+    public static final String HEADER = "Book_ID\tLine\tOccurrences";
+    // Positional rows add the word offsets of the line: the first offset, then the gap to each next one
+    public static final String POSITIONAL_HEADER = HEADER + "\tPositions";
+
+    public static String header(boolean positionalPostings) {
+        return positionalPostings ? POSITIONAL_HEADER : HEADER;
+    }
+
+    // Rows are appended to an existing word file as they are, so its header must be the one of the
+    // current mode: a datamart cannot switch positional postings on or off
+    public static void checkHeader(File file, boolean positionalPostings) throws IOException {
+        String header;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            header = reader.readLine();
+        }
+        String expected = header(positionalPostings);
+        if (!expected.equals(header)) {
+            throw new IOException("Unexpected header in " + file + ": \"" + header + "\" instead of \"" + expected
+                    + "\", positional postings cannot be switched on an existing datamart");
+        }
+    }
+
+    // Appends one row ending in '\n'; positions is null for a datamart without positional postings
+    public static StringBuilder appendRow(StringBuilder rows, String bookId, int line, int occurrences,
+                                          String positions) {
+        rows.append(bookId).append('\t').append(line).append('\t').append(occurrences);
+        if (positions != null) {
+            rows.append('\t').append(positions);
+        }
+        return rows.append('\n');
+    }
+
+    // "3,2,7" for the offsets 3, 5 and 12
+    public static String encodePositions(int[] offsets, int from, int count) {
+        StringBuilder positions = new StringBuilder();
+        for (int i = from; i < from + count; i++) {
+            if (i > from) {
+                positions.append(',');
+            }
+            positions.append(i == from ? offsets[i] : offsets[i] - offsets[i - 1]);
+        }
+        return positions.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.interfaces;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
+public interface ProgressManifest {
+    // Rolls back a group that never committed and loads the completed book ids
+    void recover() throws IOException;
+
+    boolean isCompleted(int bookId);
+
+    // Called before a group of books is written: appendOffsets maps every file the group changes
+    // in place to the offset it starts writing at, bytes from there on are saved for the rollback
+    void beginGroup(Collection<Integer> bookIds, Map<Path, Long> appendOffsets) throws IOException;
+
+    // Starts the next step of a group written in several steps, keeping everything written before it:
+    // after a crash only the files of the current step are rolled back, and resumePoint, which tells
+    // the writer which steps are done, is handed back by getResumePoint()
+    void beginStep(Collection<Integer> bookIds, String resumePoint, Map<Path, Long> appendOffsets) throws IOException;
+
+    // Called once every file of the group is written
+    void commitGroup(Collection<Integer> bookIds) throws IOException;
+
+    // After recover(): the resume point of a group left between two steps, or null
+    String getResumePoint();
+
+    // After recover(): the book ids of that group, empty when there is none
+    Collection<Integer> getResumeGroup();
+}
@@ -0,0 +1,154 @@
+package com.example.model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded word -> lemma map shared by all indexing threads.
+// Entries are spread over independently locked LRU segments so workers rarely contend.
+public class LemmaCache {
+
+    private static final int SEGMENTS = 64;
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LemmaCache(int capacity) {
+        int segmentCapacity = Math.max(1, capacity / SEGMENTS);
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentCapacity, evictions);
+        }
+    }
+
+    public String get(String word) {
+        Segment segment = segmentFor(word);
+        String lemma;
+        synchronized (segment) {
+            lemma = segment.get(word);
+        }
+        if (lemma != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return lemma;
+    }
+
+    public void put(String word, String lemma) {
+        Segment segment = segmentFor(word);
+        synchronized (segment) {
+            segment.put(word, lemma);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    // Warms the cache with the word/lemma pairs saved by a previous run
+    public void load(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    put(line.substring(0, tab), line.substring(tab + 1));
+                }
+            }
+        }
+    }
+
+    // Writes the cache contents as word<TAB>lemma lines, replacing the previous file atomically
+    public void save(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tempPath = Paths.get(filePath + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (Segment segment : segments) {
+                List<Map.Entry<String, String>> entries;
+                synchronized (segment) {
+                    entries = new ArrayList<>(segment.entrySet());
+                }
+                for (Map.Entry<String, String> entry : entries) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LemmaCache[size=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f%%]",
+                size(), getHits(), getMisses(), getEvictions(), getHitRate() * 100);
+    }
+
+    private Segment segmentFor(String word) {
+        int hash = word.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static class Segment extends LinkedHashMap<String, String> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-only word -> lemma dictionary, loaded once and shared by every thread.
+// Words are kept sorted in one array and found by binary search; a word that is its own lemma
+// points at the same String, so the table costs little more than the words themselves.
+public class LemmaTable {
+
+    private final String[] words;
+    private final String[] lemmas;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private LemmaTable(String[] words, String[] lemmas) {
+        this.words = words;
+        this.lemmas = lemmas;
+    }
+
+    public static LemmaTable fromMap(Map<String, String> entries) {
+        String[] words = entries.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        String[] lemmas = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            String lemma = entries.get(words[i]);
+            lemmas[i] = lemma.equals(words[i]) ? words[i] : lemma;
+        }
+        return new LemmaTable(words, lemmas);
+    }
+
+    // Reads word<TAB>lemma lines, the format LemmaCache.save writes; a missing file gives an empty table
+    public static LemmaTable load(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        Map<String, String> entries = new HashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (tab > 0) {
+                        entries.put(line.substring(0, tab).toLowerCase(), line.substring(tab + 1));
+                    }
+                }
+            }
+        }
+        return fromMap(entries);
+    }
+
+    // The lemma of a lowercase word, or null when the table does not know it
+    public String get(String word) {
+        int index = Arrays.binarySearch(words, word);
+        if (index < 0) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return lemmas[index];
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        long lookups = getHits() + getMisses();
+        return String.format("LemmaTable[size=%d, hits=%d, misses=%d, hitRate=%.2f%%]",
+                size(), getHits(), getMisses(), lookups == 0 ? 0 : getHits() * 100.0 / lookups);
+    }
+}
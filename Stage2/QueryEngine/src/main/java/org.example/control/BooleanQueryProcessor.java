@@ -0,0 +1,405 @@
+package org.example.control;
+
+import org.example.interfaces.QueryProcessor;
+import org.example.model.Metadata;
+import org.example.model.WordData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Boolean queries over book ids: terms combined with AND, OR, NOT and parentheses, e.g.
+// "whale AND (ocean OR sea) NOT ship". Operators are upper case, adjacent terms are ANDed,
+// NOT binds tighter than AND and AND tighter than OR.
+// Every term becomes its book ids as a sorted int[]. An AND intersects its lists rarest first,
+// galloping through the longer list from the last match, and subtracts its NOT operands the same
+// way, so common terms cost little when they are combined with a rare one.
+public class BooleanQueryProcessor implements QueryProcessor {
+
+    private final Function<String, Map<Integer, WordData>> index;
+    private final Map<Integer, Metadata> metadata;
+    private final int cacheMinBooks;
+    private final long maxCachedBooks;
+    private final int maxResults;
+    // Sorted book ids of frequent terms, so their maps are not turned into arrays on every query;
+    // least recently queried first out once they hold more than maxCachedBooks ids
+    private final Map<String, int[]> cachedBookIds = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBooks;
+    // Every book in the metadata, only built for a NOT with no positive operand to subtract from
+    private int[] allBookIds;
+
+    public BooleanQueryProcessor(Function<String, Map<Integer, WordData>> index, Map<Integer, Metadata> metadata,
+                                 int cacheMinBooks, long maxCachedBooks, int maxResults) {
+        this.index = index;
+        this.metadata = metadata;
+        this.cacheMinBooks = cacheMinBooks;
+        this.maxCachedBooks = maxCachedBooks;
+        this.maxResults = Math.max(1, maxResults);
+    }
+
+    // Whether query uses an operator, plain word lists are left to the other processors
+    public static boolean isBooleanQuery(String query) {
+        for (String token : tokenize(query)) {
+            if (token.equals("AND") || token.equals("OR") || token.equals("NOT") || token.equals("(")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void processQuery(String query) {
+        int[] results;
+        try {
+            results = search(query);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid query: " + e.getMessage());
+            return;
+        }
+
+        if (results.length == 0) {
+            System.out.printf("No results found for the query: %s%n", query);
+            return;
+        }
+
+        System.out.printf("%d books match the query: %s%n", results.length, query);
+        for (int i = 0; i < results.length && i < maxResults; i++) {
+            Metadata bookMetadata = metadata.get(results[i]);
+            if (bookMetadata != null) {
+                System.out.printf("Book: %s | Author: %s%n", bookMetadata.getTitle(), bookMetadata.getAuthor());
+            } else {
+                System.out.printf("Book ID: %d%n", results[i]);
+            }
+        }
+        if (results.length > maxResults) {
+            System.out.printf("... and %d more%n", results.length - maxResults);
+        }
+    }
+
+    // Book ids matching the query in ascending order
+    public int[] search(String query) {
+        Parser parser = new Parser(tokenize(query));
+        Node root = parser.parseOr();
+        if (!parser.isDone()) {
+            throw new IllegalArgumentException("unexpected " + parser.peek());
+        }
+        return root.evaluate();
+    }
+
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        for (String word : query.trim().replace("(", " ( ").replace(")", " ) ").split("\\s+")) {
+            if (!word.isEmpty()) {
+                tokens.add(word);
+            }
+        }
+        return tokens;
+    }
+
+    private int[] bookIdsFor(String term) {
+        int[] cached = cachedBookIds.get(term);
+        if (cached != null) {
+            return cached;
+        }
+        Map<Integer, WordData> postings = index.apply(term);
+        if (postings == null || postings.isEmpty()) {
+            return new int[0];
+        }
+        int[] bookIds = sortedIds(postings.keySet());
+        if (bookIds.length >= cacheMinBooks && bookIds.length <= maxCachedBooks) {
+            cachedBookIds.put(term, bookIds);
+            cachedBooks += bookIds.length;
+            Iterator<int[]> eldest = cachedBookIds.values().iterator();
+            while (cachedBooks > maxCachedBooks) {
+                cachedBooks -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+        return bookIds;
+    }
+
+    private int[] allBookIds() {
+        if (allBookIds == null) {
+            allBookIds = sortedIds(metadata.keySet());
+        }
+        return allBookIds;
+    }
+
+    private static int[] sortedIds(Iterable<Integer> ids) {
+        int[] sorted = new int[16];
+        int size = 0;
+        for (Integer id : ids) {
+            if (size == sorted.length) {
+                sorted = Arrays.copyOf(sorted, size * 2);
+            }
+            sorted[size++] = id;
+        }
+        sorted = Arrays.copyOf(sorted, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // First index >= from whose id is >= target, or ids.length: the step doubles until it overshoots,
+    // then the last step is binary searched
+    static int gallop(int[] ids, int from, int target) {
+        if (from >= ids.length || ids[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < ids.length && ids[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, ids.length - 1);
+        // ids[low] < target, and ids[high] >= target unless high is the last index
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return ids[low] >= target ? low : ids.length;
+    }
+
+    // Ids of the shorter list looked up in the longer one
+    static int[] intersect(int[] shorter, int[] longer) {
+        int[] result = new int[shorter.length];
+        int size = 0;
+        int position = 0;
+        for (int id : shorter) {
+            position = gallop(longer, position, id);
+            if (position == longer.length) {
+                break;
+            }
+            if (longer[position] == id) {
+                result[size++] = id;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    static int[] subtract(int[] ids, int[] excluded) {
+        int[] result = new int[ids.length];
+        int size = 0;
+        int position = 0;
+        for (int id : ids) {
+            position = gallop(excluded, position, id);
+            if (position == excluded.length || excluded[position] != id) {
+                result[size++] = id;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    static int[] union(int[] first, int[] second) {
+        int[] result = new int[first.length + second.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            int next;
+            if (j == second.length || (i < first.length && first[i] < second[j])) {
+                next = first[i++];
+            } else if (i == first.length || second[j] < first[i]) {
+                next = second[j++];
+            } else {
+                next = first[i++];
+                j++;
+            }
+            result[size++] = next;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private abstract static class Node {
+        // Upper bound of the matching books, used to order the operands of an AND
+        abstract int estimate();
+
+        abstract int[] evaluate();
+    }
+
+    private class Term extends Node {
+        private final String term;
+        private int[] bookIds;
+
+        private Term(String term) {
+            this.term = term;
+        }
+
+        // Fetches the postings once, an AND asks for the size before it evaluates its operands
+        private int[] bookIds() {
+            if (bookIds == null) {
+                bookIds = bookIdsFor(term);
+            }
+            return bookIds;
+        }
+
+        @Override
+        int estimate() {
+            return bookIds().length;
+        }
+
+        @Override
+        int[] evaluate() {
+            return bookIds();
+        }
+    }
+
+    private class Not extends Node {
+        private final Node operand;
+
+        private Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        int estimate() {
+            return allBookIds().length;
+        }
+
+        // Only reached outside an AND, e.g. "whale OR NOT ocean"; an AND subtracts the operand instead
+        @Override
+        int[] evaluate() {
+            return subtract(allBookIds(), operand.evaluate());
+        }
+    }
+
+    private class And extends Node {
+        private final List<Node> included = new ArrayList<>();
+        private final List<Node> excluded = new ArrayList<>();
+
+        private void add(Node operand) {
+            if (operand instanceof Not) {
+                excluded.add(((Not) operand).operand);
+            } else {
+                included.add(operand);
+            }
+        }
+
+        @Override
+        int estimate() {
+            int estimate = Integer.MAX_VALUE;
+            for (Node operand : included) {
+                estimate = Math.min(estimate, operand.estimate());
+            }
+            return estimate == Integer.MAX_VALUE ? allBookIds().length : estimate;
+        }
+
+        @Override
+        int[] evaluate() {
+            // Rarest first: the candidates only shrink, and an empty operand ends the query early
+            List<Node> ordered = new ArrayList<>(included);
+            ordered.sort(Comparator.comparingInt(Node::estimate));
+
+            int[] result = ordered.isEmpty() ? allBookIds() : ordered.get(0).evaluate();
+            for (int i = 1; i < ordered.size() && result.length > 0; i++) {
+                int[] other = ordered.get(i).evaluate();
+                result = result.length <= other.length ? intersect(result, other) : intersect(other, result);
+            }
+            for (int i = 0; i < excluded.size() && result.length > 0; i++) {
+                result = subtract(result, excluded.get(i).evaluate());
+            }
+            return result;
+        }
+    }
+
+    private static class Or extends Node {
+        private final List<Node> operands = new ArrayList<>();
+
+        @Override
+        int estimate() {
+            long estimate = 0;
+            for (Node operand : operands) {
+                estimate += operand.estimate();
+            }
+            return (int) Math.min(Integer.MAX_VALUE, estimate);
+        }
+
+        @Override
+        int[] evaluate() {
+            int[] result = new int[0];
+            for (Node operand : operands) {
+                result = union(result, operand.evaluate());
+            }
+            return result;
+        }
+    }
+
+    // or  := and (OR and)*
+    // and := not (AND? not)*
+    // not := NOT not | ( or ) | term
+    private class Parser {
+        private final List<String> tokens;
+        private int position;
+
+        private Parser(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        private boolean isDone() {
+            return position == tokens.size();
+        }
+
+        private String peek() {
+            return isDone() ? null : tokens.get(position);
+        }
+
+        private Node parseOr() {
+            Or or = new Or();
+            or.operands.add(parseAnd());
+            while ("OR".equals(peek())) {
+                position++;
+                or.operands.add(parseAnd());
+            }
+            return or.operands.size() == 1 ? or.operands.get(0) : or;
+        }
+
+        private Node parseAnd() {
+            And and = new And();
+            and.add(parseNot());
+            while (!isDone() && !"OR".equals(peek()) && !")".equals(peek())) {
+                if ("AND".equals(peek())) {
+                    position++;
+                }
+                and.add(parseNot());
+            }
+            if (and.excluded.isEmpty() && and.included.size() == 1) {
+                return and.included.get(0);
+            }
+            return and;
+        }
+
+        private Node parseNot() {
+            String token = peek();
+            if (token == null) {
+                throw new IllegalArgumentException("the query ends where a term was expected");
+            }
+            position++;
+            if (token.equals("NOT")) {
+                Node operand = parseNot();
+                // NOT NOT x is x
+                return operand instanceof Not ? ((Not) operand).operand : new Not(operand);
+            }
+            if (token.equals("(")) {
+                Node group = parseOr();
+                if (!")".equals(peek())) {
+                    throw new IllegalArgumentException("missing )");
+                }
+                position++;
+                return group;
+            }
+            if (token.equals(")") || token.equals("AND") || token.equals("OR")) {
+                throw new IllegalArgumentException("unexpected " + token);
+            }
+            return new Term(token.toLowerCase());
+        }
+    }
+}
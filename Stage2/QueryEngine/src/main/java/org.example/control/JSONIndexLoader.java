@@ -1,16 +1,30 @@
 package org.example.control;
 
-import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
 import org.example.interfaces.IndexLoader;
+import org.example.interfaces.TermLoader;
 import org.example.model.WordData;
-import org.example.model.WordPosition;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-public class JSONIndexLoader implements IndexLoader {
+public class JSONIndexLoader implements IndexLoader, TermLoader {
+
+    // Threads that parse word files concurrently in loadIndex, 1 keeps the sequential walk
+    private final int parallelism;
+
+    public JSONIndexLoader() {
+        this(1);
+    }
+
+    public JSONIndexLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     @Override
     public Map<String, Map<Integer, WordData>> loadIndex(String indexBasePath) throws Exception {
         Map<String, Map<Integer, WordData>> index = new HashMap<>();
@@ -20,39 +34,123 @@ public class JSONIndexLoader implements IndexLoader {
             throw new Exception("The base folder does not exist or is not a valid directory.");
         }
 
+        if (parallelism > 1) {
+            return new ParallelDatamartLoader(".json", JSONIndexLoader::readFile).load(baseFolder, parallelism);
+        }
+
         for (File firstLetterFolder : baseFolder.listFiles(File::isDirectory)) {
             for (File secondLetterFolder : firstLetterFolder.listFiles(File::isDirectory)) {
                 for (File file : secondLetterFolder.listFiles((dir, name) -> name.endsWith(".json"))) {
-                    try (FileReader reader = new FileReader(file)) {
-                        JsonObject jsonObject = JsonParser.parseReader(reader).getAsJsonObject();
-                        String word = jsonObject.get("word").getAsString();
-                        JsonObject allocations = jsonObject.getAsJsonObject("allocations");
-
-                        Map<Integer, WordData> wordDataMap = new HashMap<>();
-
-                        for (Map.Entry<String, JsonElement> entry : allocations.entrySet()) {
-                            int bookId = Integer.parseInt(entry.getKey().replace("BookID_", ""));
-                            JsonObject bookData = entry.getValue().getAsJsonObject();
-                            int times = bookData.get("times").getAsInt();
-
-                            WordData wordData = new WordData(times);
-
-                            for (JsonElement positionElement : bookData.getAsJsonArray("positions")) {
-                                JsonObject position = positionElement.getAsJsonObject();
-                                int line = position.get("line").getAsInt();
-                                int wordIndex = position.get("wordIndex").getAsInt();
-                                wordData.addPosition(new WordPosition(line, wordIndex));
-                            }
-                            wordDataMap.put(bookId, wordData);
-                        }
-
-                        index.put(word, wordDataMap);
-                    } catch (Exception e) {
-                        System.err.printf("Error processing the file %s: %s%n", file.getName(), e.getMessage());
-                    }
+                    readFile(file, index);
                 }
             }
         }
         return index;
     }
+
+    // A file that cannot be parsed is reported and left out of the index
+    private static void readFile(File file, Map<String, Map<Integer, WordData>> index) {
+        try {
+            Map<Integer, WordData> wordDataMap = new HashMap<>();
+            String word = readWordFile(file, wordDataMap);
+            if (word == null) {
+                throw new IOException("no \"word\" field");
+            }
+            index.put(word, wordDataMap);
+        } catch (Exception e) {
+            System.err.printf("Error processing the file %s: %s%n", file.getName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<Integer, WordData> loadTerm(String indexBasePath, String term) throws IOException {
+        File file = TSVIndexLoader.termFile(indexBasePath, term, ".json");
+        if (!file.isFile()) {
+            return null;
+        }
+        Map<Integer, WordData> wordDataMap = new HashMap<>();
+        try {
+            readWordFile(file, wordDataMap);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Invalid JSON in " + file.getName() + ": " + e.getMessage(), e);
+        }
+        return wordDataMap;
+    }
+
+    // Streams {"word": ..., "allocations": {"BookID_<id>": {"times": n, "positions": [{"line": l, "wordIndex": w}]}}}
+    // straight into WordData, without building a JsonObject tree; returns the word
+    private static String readWordFile(File file, Map<Integer, WordData> wordDataMap) throws IOException {
+        try (JsonReader reader = new JsonReader(new BufferedReader(new FileReader(file)))) {
+            String word = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("word")) {
+                    word = reader.nextString();
+                } else if (name.equals("allocations")) {
+                    readAllocations(reader, wordDataMap);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return word;
+        }
+    }
+
+    private static void readAllocations(JsonReader reader, Map<Integer, WordData> wordDataMap) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int bookId = Integer.parseInt(reader.nextName().replace("BookID_", ""));
+            WordData wordData = null;
+            int times = 0;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("times")) {
+                    times = reader.nextInt();
+                    if (wordData == null) {
+                        wordData = new WordData(times);
+                    } else {
+                        wordData.setTotalOccurrences(times);
+                    }
+                } else if (name.equals("positions")) {
+                    if (wordData == null) {
+                        // "times" usually comes first and sizes the positions, this is only the fallback
+                        wordData = new WordData(0);
+                    }
+                    readPositions(reader, wordData);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            wordDataMap.put(bookId, wordData != null ? wordData : new WordData(times));
+        }
+        reader.endObject();
+    }
+
+    private static void readPositions(JsonReader reader, WordData wordData) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int line = 0;
+            int wordIndex = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("line")) {
+                    line = reader.nextInt();
+                } else if (name.equals("wordIndex")) {
+                    wordIndex = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            wordData.addPosition(line, wordIndex);
+        }
+        reader.endArray();
+    }
 }
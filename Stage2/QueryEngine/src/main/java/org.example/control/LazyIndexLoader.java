@@ -0,0 +1,114 @@
+package org.example.control;
+
+import org.example.interfaces.TermLoader;
+import org.example.model.WordData;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Loads postings on demand instead of reading the whole datamart at startup: a queried term is read
+// from its own file (or shard) by the TermLoader, and the decoded postings stay in an LRU cache
+// bounded by their number of positions, so memory follows the terms actually being queried.
+// Terms that are not indexed are remembered too, as they cost a file lookup each time; with a
+// TermDictionary they are answered from the dictionary without touching the datamart at all.
+public class LazyIndexLoader {
+
+    private static final Map<Integer, WordData> NOT_INDEXED = Collections.emptyMap();
+
+    private final TermLoader termLoader;
+    private final String indexBasePath;
+    private final long maxCachedPositions;
+    private final TermDictionary dictionary;
+    private final Map<String, Map<Integer, WordData>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedPositions;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long skipped;
+
+    public LazyIndexLoader(TermLoader termLoader, String indexBasePath, long maxCachedPositions) {
+        this(termLoader, indexBasePath, maxCachedPositions, null);
+    }
+
+    // dictionary may be null; when given it must be current for this datamart (TermDictionary.isCurrent)
+    public LazyIndexLoader(TermLoader termLoader, String indexBasePath, long maxCachedPositions,
+                           TermDictionary dictionary) {
+        this.termLoader = termLoader;
+        this.indexBasePath = indexBasePath;
+        this.maxCachedPositions = maxCachedPositions;
+        this.dictionary = dictionary;
+    }
+
+    // The postings of term, or null when it is not indexed
+    public synchronized Map<Integer, WordData> get(String term) {
+        if (dictionary != null && !dictionary.contains(term)) {
+            skipped++;
+            return null;
+        }
+        Map<Integer, WordData> postings = cache.get(term);
+        if (postings != null) {
+            hits++;
+            return postings == NOT_INDEXED ? null : postings;
+        }
+        misses++;
+
+        try {
+            postings = term.isEmpty() ? null : termLoader.loadTerm(indexBasePath, term);
+        } catch (IOException | RuntimeException e) {
+            // A malformed row (a NumberFormatException from the parser) only loses this term, not the
+            // session; not cached, a later query tries the file again
+            System.err.printf("Error loading the postings of %s: %s%n", term, e);
+            return null;
+        }
+
+        cache.put(term, postings == null ? NOT_INDEXED : postings);
+        cachedPositions += weight(postings);
+        evict();
+        return postings;
+    }
+
+    // Least recently queried terms go first; the newest entry stays even when it alone exceeds the budget
+    private void evict() {
+        Iterator<Map.Entry<String, Map<Integer, WordData>>> eldest = cache.entrySet().iterator();
+        while (cachedPositions > maxCachedPositions && cache.size() > 1) {
+            Map.Entry<String, Map<Integer, WordData>> entry = eldest.next();
+            cachedPositions -= weight(entry.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long weight(Map<Integer, WordData> postings) {
+        if (postings == null || postings == NOT_INDEXED) {
+            return 1;
+        }
+        long positions = 0;
+        for (WordData wordData : postings.values()) {
+            positions += 1 + wordData.getPositionCount();
+        }
+        return positions;
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getCachedPositions() {
+        return cachedPositions;
+    }
+
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("LazyIndexLoader[terms=%d, positions=%d, hits=%d, misses=%d, evictions=%d, "
+                        + "notInDictionary=%d, hitRate=%.2f%%]",
+                cache.size(), cachedPositions, hits, misses, evictions, skipped, getHitRate() * 100);
+    }
+}
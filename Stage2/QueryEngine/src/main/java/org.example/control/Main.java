@@ -1,52 +1,159 @@
 package org.example.control;
 
 import org.example.interfaces.IndexLoader;
+import org.example.interfaces.TermLoader;
+import org.example.model.BlockPostingList;
 import org.example.model.Metadata;
 import org.example.model.WordData;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.function.Function;
 
 public class Main {
+    // Queries with several words are ranked and only the best TOP_K books are printed
+    private static final int TOP_K = 10;
+    // true: books must contain every query word, false: any of them
+    private static final boolean RANKED_MATCH_ALL = true;
+    // Books per block of a ranked posting list; lists of at least BLOCK_CACHE_MIN_BOOKS books stay in memory,
+    // as do the book ids of such terms for boolean queries, each up to MAX_CACHED_POSITIONS books
+    private static final int BLOCK_SIZE = BlockPostingList.DEFAULT_BLOCK_SIZE;
+    private static final int BLOCK_CACHE_MIN_BOOKS = 1_000;
+    // Words left out of multi-word queries, as are words found in more than MAX_BOOK_FRACTION of the books
+    private static final Set<String> STOP_TERMS = Set.of("the", "and", "of", "a", "to", "in", "be");
+    private static final double MAX_BOOK_FRACTION = 0.9;
+    // Reads each queried term from its file when first needed instead of loading the whole index at startup;
+    // decoded postings are cached up to MAX_CACHED_POSITIONS positions, least recently queried evicted first
+    private static final boolean LAZY_LOADING = true;
+    private static final long MAX_CACHED_POSITIONS = 5_000_000;
+    // Threads parsing JSON and TSV word files when the whole index is loaded up front
+    private static final int LOADER_THREADS = Runtime.getRuntime().availableProcessors();
+    // Answers lookups of terms that are not indexed from the datamart's terms.dict, with no file access.
+    // The dictionary is a snapshot: run with the build-dictionary argument again after every indexing run,
+    // a dictionary older than the datamart is ignored and terms are looked up in the datamart
+    private static final boolean USE_TERM_DICTIONARY = true;
+    // Datamart of the tsv, tsv-shard and tsv-mmap options: Indexer2's, or datamart/reverse_indexes_Indexer1_tsv
+    // for the TSV datamart Indexer1 writes when its TSV_SINK is on
+    private static final String TSV_DATAMART_DIRECTORY = "datamart/reverse_indexes_indexer2";
+
     public static void main(String[] args) {
         String metadataPath = "datalake/metadata.csv";
         Scanner scanner = new Scanner(System.in);
 
         try {
-            System.out.println("Do you want to load JSON or TSV indexes? (json/tsv): ");
+            System.out.println("Do you want to load JSON or TSV indexes? (json/tsv/seg/seg-shard/tsv-shard/tsv-mmap): ");
             String option = scanner.nextLine().trim().toLowerCase();
 
-            IndexLoader loader;
+            IndexLoader loader = null;
             String indexBasePath;
 
-            if ("json".equals(option)) {
-                loader = new JSONIndexLoader();
+            if ("tsv-mmap".equals(option)) {
+                // Nothing is loaded up front, each queried term is read from its mapped .tsv file or shard
+                indexBasePath = TSV_DATAMART_DIRECTORY;
+            } else if ("json".equals(option)) {
+                loader = new JSONIndexLoader(LOADER_THREADS);
+                indexBasePath = "datamart/reverse_indexes_indexer1";
+            } else if ("seg".equals(option)) {
+                loader = new SegmentIndexLoader();
                 indexBasePath = "datamart/reverse_indexes_indexer1";
+            } else if ("seg-shard".equals(option)) {
+                loader = new ShardIndexLoader(ShardIndexLoader.Payload.POSTINGS);
+                indexBasePath = "datamart/reverse_indexes_indexer1";
+            } else if ("tsv-shard".equals(option)) {
+                loader = new ShardIndexLoader(ShardIndexLoader.Payload.TSV);
+                indexBasePath = TSV_DATAMART_DIRECTORY;
             } else if ("tsv".equals(option)) {
-                loader = new TSVIndexLoader();
-                indexBasePath = "datamart/reverse_indexes_indexer2";
+                loader = new TSVIndexLoader(LOADER_THREADS);
+                indexBasePath = TSV_DATAMART_DIRECTORY;
             } else {
                 System.out.println("Invalid option. Program will terminate.");
                 return;
             }
 
+            Path dictionaryPath = Paths.get(indexBasePath, TermDictionary.FILE_NAME);
+            if (args.length > 0 && "build-dictionary".equals(args[0])) {
+                long datamartModified = TermDictionary.datamartModified(indexBasePath);
+                System.out.println("Loading indexes...");
+                Map<String, Map<Integer, WordData>> fullIndex;
+                if (loader == null) {
+                    // The mapped reader serves both .tsv files and shards, and a term in both from its .tsv file
+                    fullIndex = new ShardIndexLoader(ShardIndexLoader.Payload.TSV).loadIndex(indexBasePath);
+                    fullIndex.putAll(new TSVIndexLoader(LOADER_THREADS).loadIndex(indexBasePath));
+                } else {
+                    fullIndex = loader.loadIndex(indexBasePath);
+                }
+                TermDictionary.write(fullIndex, dictionaryPath, datamartModified);
+                System.out.println("Wrote " + fullIndex.size() + " terms to " + dictionaryPath);
+                return;
+            }
+
+            TermDictionary dictionary = null;
+            if (USE_TERM_DICTIONARY && Files.exists(dictionaryPath)) {
+                try {
+                    TermDictionary candidate = TermDictionary.open(dictionaryPath);
+                    if (candidate.isCurrent(indexBasePath)) {
+                        dictionary = candidate;
+                        System.out.println("Term dictionary: " + dictionary.size() + " terms");
+                    } else {
+                        System.out.println("The term dictionary is older than the datamart and is not used, "
+                                + "run with build-dictionary to rebuild it.");
+                    }
+                } catch (IOException e) {
+                    System.out.println("The term dictionary could not be read and is not used: " + e.getMessage());
+                }
+            }
+
             System.out.println("Loading metadata...");
             CSVMetadataLoader metadataLoader = new CSVMetadataLoader();
             Map<Integer, Metadata> metadata = metadataLoader.loadMetadata(metadataPath);
 
-            System.out.println("Loading indexes...");
-            Map<String, Map<Integer, WordData>> index = loader.loadIndex(indexBasePath);
+            Function<String, Map<Integer, WordData>> index;
+            LazyIndexLoader lazyIndexLoader = null;
+            if (loader == null) {
+                MappedTsvIndexReader reader = new MappedTsvIndexReader(indexBasePath);
+                TermDictionary terms = dictionary;
+                index = terms == null ? reader::readTerm : term -> terms.contains(term) ? reader.readTerm(term) : null;
+            } else if (LAZY_LOADING && loader instanceof TermLoader) {
+                lazyIndexLoader = new LazyIndexLoader((TermLoader) loader, indexBasePath, MAX_CACHED_POSITIONS,
+                        dictionary);
+                index = lazyIndexLoader::get;
+            } else {
+                System.out.println("Loading indexes...");
+                index = loader.loadIndex(indexBasePath)::get;
+            }
 
+            // With a dictionary the frequent terms are found without reading their postings
+            StopTermPolicy stopTermPolicy = new StopTermPolicy(STOP_TERMS, MAX_BOOK_FRACTION,
+                    dictionary == null ? null : dictionary::getDocumentFrequency);
             SimpleQueryProcessor queryProcessor = new SimpleQueryProcessor(index, metadata);
-            System.out.println("Query system initialized. Type a word to search:");
+            RankedQueryProcessor rankedQueryProcessor = new RankedQueryProcessor(index, metadata,
+                    stopTermPolicy, BLOCK_SIZE, BLOCK_CACHE_MIN_BOOKS, MAX_CACHED_POSITIONS, TOP_K, RANKED_MATCH_ALL);
+            BooleanQueryProcessor booleanQueryProcessor = new BooleanQueryProcessor(index, metadata,
+                    BLOCK_CACHE_MIN_BOOKS, MAX_CACHED_POSITIONS, TOP_K);
+            System.out.println("Query system initialized. Type a word to search, several words to rank books, "
+                    + "or combine words with AND, OR, NOT and parentheses:");
 
             while (true) {
                 System.out.print("Query: ");
                 String query = scanner.nextLine().trim();
                 if (query.equalsIgnoreCase("exit")) {
+                    if (lazyIndexLoader != null) {
+                        System.out.println(lazyIndexLoader);
+                    }
                     break;
                 }
-                queryProcessor.processQuery(query);
+                if (BooleanQueryProcessor.isBooleanQuery(query)) {
+                    booleanQueryProcessor.processQuery(query);
+                } else if (query.contains(" ")) {
+                    rankedQueryProcessor.processQuery(query);
+                } else {
+                    queryProcessor.processQuery(query);
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,122 @@
+package org.example.control;
+
+import org.example.model.WordData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reads the Indexer2 datamart one term at a time, only when a query asks for it.
+// The term's <c>/<cc>/<term>.tsv file (or its extents in <c>/<cc>.shard) is memory-mapped and
+// the Book_ID, Line, Occurrences[, Positions] columns are parsed straight from the mapped bytes.
+public class MappedTsvIndexReader {
+
+    private final String indexBasePath;
+
+    public MappedTsvIndexReader(String indexBasePath) {
+        this.indexBasePath = indexBasePath;
+    }
+
+    // The postings of term, or null when the datamart does not have it
+    public Map<Integer, WordData> readTerm(String term) {
+        if (term.isEmpty()) {
+            return null;
+        }
+        String firstLetter = term.substring(0, 1);
+        String twoFirstLetters = term.length() > 1 ? term.substring(0, 2) : firstLetter;
+
+        try {
+            Path tsvPath = Paths.get(indexBasePath, firstLetter, twoFirstLetters, term + ".tsv");
+            if (Files.isRegularFile(tsvPath)) {
+                try (FileChannel channel = FileChannel.open(tsvPath, StandardOpenOption.READ)) {
+                    Map<Integer, WordData> wordDataMap = new HashMap<>();
+                    parseRows(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), wordDataMap);
+                    return wordDataMap;
+                }
+            }
+
+            List<ByteBuffer> payloads = new ShardFile(
+                    Paths.get(indexBasePath, firstLetter, twoFirstLetters + ShardFile.EXTENSION)).map(term);
+            if (payloads.isEmpty()) {
+                return null;
+            }
+            Map<Integer, WordData> wordDataMap = new HashMap<>();
+            for (ByteBuffer payload : payloads) {
+                parseRows(payload, wordDataMap);
+            }
+            return wordDataMap;
+        } catch (IOException e) {
+            System.err.printf("Error reading the term %s: %s%n", term, e.getMessage());
+            return null;
+        }
+    }
+
+    // Same rows as TSVIndexLoader.addRow; the header and any malformed line are skipped
+    static void parseRows(ByteBuffer rows, Map<Integer, WordData> wordDataMap) {
+        int position = rows.position();
+        int limit = rows.limit();
+        int[] cursor = new int[1];
+
+        while (position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && rows.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int end = lineEnd > position && rows.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+
+            cursor[0] = position;
+            int bookId = parseInt(rows, cursor, end);
+            int line = parseInt(rows, cursor, end);
+            int occurrences = parseInt(rows, cursor, end);
+
+            if (bookId >= 0 && line >= 0 && occurrences >= 0) {
+                WordData wordData = wordDataMap.computeIfAbsent(bookId, k -> new WordData(0));
+                if (cursor[0] < end) {
+                    // Positional rows: the first word offset, then the gap to each next one
+                    int offset = 0;
+                    int gap;
+                    while ((gap = parseInt(rows, cursor, end)) >= 0) {
+                        offset += gap;
+                        wordData.incrementTotalOccurrences(1);
+                        wordData.addPosition(line, offset);
+                    }
+                } else {
+                    for (int i = 0; i < occurrences; i++) {
+                        wordData.incrementTotalOccurrences(1);
+                        wordData.addPosition(line, i + 1);
+                    }
+                }
+            }
+            position = lineEnd + 1;
+        }
+    }
+
+    // Reads the digits at cursor up to the next tab or comma (skipped too), -1 when there are none
+    private static int parseInt(ByteBuffer rows, int[] cursor, int end) {
+        int i = cursor[0];
+        int value = 0;
+        int digits = 0;
+        while (i < end) {
+            byte b = rows.get(i);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            i++;
+        }
+        if (digits == 0 || (i < end && rows.get(i) != '\t' && rows.get(i) != ',')) {
+            cursor[0] = end;
+            return -1;
+        }
+        cursor[0] = i < end ? i + 1 : end;
+        return value;
+    }
+}
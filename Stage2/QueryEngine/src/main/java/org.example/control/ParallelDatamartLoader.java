@@ -0,0 +1,137 @@
+package org.example.control;
+
+import org.example.model.WordData;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Loads a <c>/<cc>/<word file> datamart on a ForkJoinPool: the two-letter directories are split
+// between tasks, every task parses its files into a map of its own and the maps are merged as the
+// tasks join, so no map is shared between threads. Progress and files/s are printed while it runs.
+class ParallelDatamartLoader {
+
+    private static final int REPORT_INTERVAL_SECONDS = 2;
+
+    // Parses one word file into index; errors it does not handle abort the whole load
+    interface FileParser {
+        void parse(File file, Map<String, Map<Integer, WordData>> index) throws Exception;
+    }
+
+    private final String extension;
+    private final FileParser parser;
+    private final AtomicInteger loadedFiles = new AtomicInteger();
+    private final AtomicInteger loadedDirectories = new AtomicInteger();
+    private List<File> directories;
+    private long startNanos;
+
+    ParallelDatamartLoader(String extension, FileParser parser) {
+        this.extension = extension;
+        this.parser = parser;
+    }
+
+    Map<String, Map<Integer, WordData>> load(File baseFolder, int parallelism) throws Exception {
+        directories = new ArrayList<>();
+        for (File firstLetterFolder : baseFolder.listFiles(File::isDirectory)) {
+            for (File secondLetterFolder : firstLetterFolder.listFiles(File::isDirectory)) {
+                directories.add(secondLetterFolder);
+            }
+        }
+
+        startNanos = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-load-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.out.println(getProgress()),
+                REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            return pool.invoke(new DirectoryTask(0, directories.size()));
+        } catch (LoadFailure e) {
+            throw e.failure;
+        } finally {
+            reporter.shutdownNow();
+            pool.shutdownNow();
+            System.out.println(getProgress());
+        }
+    }
+
+    // Files and directories loaded so far, with the overall files/s
+    String getProgress() {
+        double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        return String.format("Loaded %d files (%d/%d directories) in %.1fs, %.0f files/s",
+                loadedFiles.get(), loadedDirectories.get(), directories.size(), elapsedSeconds,
+                loadedFiles.get() / elapsedSeconds);
+    }
+
+    private class DirectoryTask extends RecursiveTask<Map<String, Map<Integer, WordData>>> {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+
+        private DirectoryTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, Map<Integer, WordData>> compute() {
+            if (to - from <= 1) {
+                Map<String, Map<Integer, WordData>> index = new HashMap<>();
+                if (from < to) {
+                    loadDirectory(directories.get(from), index);
+                }
+                return index;
+            }
+
+            int middle = (from + to) >>> 1;
+            DirectoryTask left = new DirectoryTask(from, middle);
+            left.fork();
+            Map<String, Map<Integer, WordData>> right = new DirectoryTask(middle, to).compute();
+            Map<String, Map<Integer, WordData>> merged = left.join();
+
+            // The smaller map is copied into the larger one
+            if (merged.size() < right.size()) {
+                Map<String, Map<Integer, WordData>> swap = merged;
+                merged = right;
+                right = swap;
+            }
+            merged.putAll(right);
+            return merged;
+        }
+
+        private void loadDirectory(File directory, Map<String, Map<Integer, WordData>> index) {
+            for (File file : directory.listFiles((dir, name) -> name.endsWith(extension))) {
+                try {
+                    parser.parse(file, index);
+                } catch (Exception e) {
+                    throw new LoadFailure(e);
+                }
+                loadedFiles.incrementAndGet();
+            }
+            loadedDirectories.incrementAndGet();
+        }
+    }
+
+    // Carries a parser's checked exception out of the pool
+    private static class LoadFailure extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final Exception failure;
+
+        private LoadFailure(Exception failure) {
+            super(failure);
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.example.control;
+
+import org.example.interfaces.QueryProcessor;
+import org.example.model.BlockPostingList;
+import org.example.model.Metadata;
+import org.example.model.WordData;
+
+import java.util.*;
+import java.util.function.Function;
+
+// Multi-term queries ranked by sum(occurrences * idf), returning only the top k books.
+// Both modes walk BlockPostingList cursors in book id order and use the per-block maxima
+// to skip blocks that cannot beat the current k-th score: all terms (AND) or any term (OR).
+public class RankedQueryProcessor implements QueryProcessor {
+
+    private final Function<String, Map<Integer, WordData>> index;
+    private final Map<Integer, Metadata> metadata;
+    private final StopTermPolicy stopTermPolicy;
+    private final int blockSize;
+    private final int cacheMinBooks;
+    private final long maxCachedBooks;
+    private final int topK;
+    private final boolean matchAll;
+    // Only the lists of frequent terms are kept, as blocks, instead of rebuilding them on every query;
+    // least recently queried first out once they hold more than maxCachedBooks books
+    private final Map<String, BlockPostingList> cachedLists = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBooks;
+
+    public RankedQueryProcessor(Function<String, Map<Integer, WordData>> index, Map<Integer, Metadata> metadata,
+                                StopTermPolicy stopTermPolicy, int blockSize, int cacheMinBooks, long maxCachedBooks,
+                                int topK, boolean matchAll) {
+        this.index = index;
+        this.metadata = metadata;
+        this.stopTermPolicy = stopTermPolicy;
+        this.blockSize = blockSize;
+        this.cacheMinBooks = cacheMinBooks;
+        this.maxCachedBooks = maxCachedBooks;
+        this.topK = Math.max(1, topK);
+        this.matchAll = matchAll;
+    }
+
+    @Override
+    public void processQuery(String query) {
+        List<ScoredBook> results = search(query);
+
+        if (results.isEmpty()) {
+            System.out.printf("No results found for the query: %s%n", query);
+            return;
+        }
+
+        System.out.println("Top " + results.size() + " results for the query: " + query);
+        for (ScoredBook result : results) {
+            Metadata bookMetadata = metadata.get(result.getBookId());
+
+            if (bookMetadata != null) {
+                System.out.printf("Book: %s | Author: %s | Score: %.3f%n",
+                        bookMetadata.getTitle(), bookMetadata.getAuthor(), result.getScore());
+            } else {
+                System.out.printf("Book ID: %d | Score: %.3f%n", result.getBookId(), result.getScore());
+            }
+        }
+    }
+
+    // The best books for the query, highest score first
+    public List<ScoredBook> search(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String term : query.toLowerCase().trim().split("\\s+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+
+        // Stop terms known up front have the longest lists of all, which are not read unless the query
+        // turns out to hold nothing but stop terms
+        List<String> skipped = new ArrayList<>();
+        for (String term : terms) {
+            if (stopTermPolicy.isKnownStopTerm(term, metadata.size())) {
+                skipped.add(term);
+            }
+        }
+        if (skipped.size() == terms.size()) {
+            skipped.clear();
+        }
+        Map<String, BlockPostingList> lists = new LinkedHashMap<>();
+        for (String term : terms) {
+            if (!skipped.contains(term) && !addPostings(term, lists)) {
+                return new ArrayList<>();
+            }
+        }
+
+        int totalBooks = totalBooks(lists);
+        List<String> stopTerms = new ArrayList<>();
+        for (Map.Entry<String, BlockPostingList> entry : lists.entrySet()) {
+            if (stopTermPolicy.isStopTerm(entry.getKey(), entry.getValue().size(), totalBooks)) {
+                stopTerms.add(entry.getKey());
+            }
+        }
+        if (stopTerms.size() == lists.size() && !skipped.isEmpty()) {
+            // Only stop terms after all, so the skipped ones are scored with the others
+            for (String term : skipped) {
+                if (!addPostings(term, lists)) {
+                    return new ArrayList<>();
+                }
+            }
+            totalBooks = totalBooks(lists);
+            skipped.clear();
+            stopTerms.clear();
+        }
+        if (!stopTerms.isEmpty() && stopTerms.size() < lists.size()) {
+            lists.keySet().removeAll(stopTerms);
+        } else {
+            stopTerms.clear();
+        }
+        stopTerms.addAll(0, skipped);
+        if (!stopTerms.isEmpty()) {
+            System.out.println("Ignoring stop terms: " + stopTerms);
+        }
+        if (lists.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Rarest term first, it leads the AND intersection
+        List<BlockPostingList> ordered = new ArrayList<>(lists.values());
+        ordered.sort(Comparator.comparingInt(BlockPostingList::size));
+        BlockPostingList.Cursor[] cursors = new BlockPostingList.Cursor[ordered.size()];
+        double[] idfs = new double[ordered.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = ordered.get(i).cursor();
+            idfs[i] = Math.log(1.0 + (double) totalBooks / ordered.get(i).size());
+        }
+
+        TopK top = new TopK(topK);
+        if (matchAll) {
+            searchAll(cursors, idfs, top);
+        } else {
+            searchAny(cursors, idfs, top);
+        }
+        return top.sorted();
+    }
+
+    // Adds the list of term; false when the term is not indexed and every term must match
+    private boolean addPostings(String term, Map<String, BlockPostingList> lists) {
+        BlockPostingList list = postingsFor(term);
+        if (list == null) {
+            return !matchAll;
+        }
+        lists.put(term, list);
+        return true;
+    }
+
+    private int totalBooks(Map<String, BlockPostingList> lists) {
+        int totalBooks = metadata.size();
+        for (BlockPostingList list : lists.values()) {
+            totalBooks = Math.max(totalBooks, list.size());
+        }
+        return totalBooks;
+    }
+
+    private BlockPostingList postingsFor(String term) {
+        BlockPostingList cached = cachedLists.get(term);
+        if (cached != null) {
+            return cached;
+        }
+        Map<Integer, WordData> postings = index.apply(term);
+        if (postings == null || postings.isEmpty()) {
+            return null;
+        }
+        BlockPostingList list = BlockPostingList.fromWordData(postings, blockSize);
+        if (list.size() >= cacheMinBooks && list.size() <= maxCachedBooks) {
+            cachedLists.put(term, list);
+            cachedBooks += list.size();
+            Iterator<BlockPostingList> eldest = cachedLists.values().iterator();
+            while (cachedBooks > maxCachedBooks) {
+                cachedBooks -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+        return list;
+    }
+
+    // Leapfrog intersection led by the rarest list; advance() jumps over blocks by their last book id
+    private void searchAll(BlockPostingList.Cursor[] cursors, double[] idfs, TopK top) {
+        BlockPostingList.Cursor lead = cursors[0];
+        while (!lead.isExhausted()) {
+            int candidate = lead.bookId();
+            boolean match = true;
+            for (int i = 1; i < cursors.length && match; i++) {
+                cursors[i].advance(candidate);
+                if (cursors[i].bookId() != candidate) {
+                    lead.advance(cursors[i].bookId());
+                    match = false;
+                }
+            }
+            if (!match) {
+                continue;
+            }
+
+            // Every book up to the first block end is in the current block of all lists,
+            // so none of them can score more than the sum of the block maxima
+            double upperBound = 0;
+            int blocksEnd = Integer.MAX_VALUE;
+            for (int i = 0; i < cursors.length; i++) {
+                upperBound += cursors[i].blockMaxFrequency() * idfs[i];
+                blocksEnd = Math.min(blocksEnd, cursors[i].blockLastBookId());
+            }
+            if (!top.canEnter(upperBound)) {
+                lead.advance(blocksEnd == Integer.MAX_VALUE ? Integer.MAX_VALUE : blocksEnd + 1);
+                continue;
+            }
+
+            double score = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                score += cursors[i].frequency() * idfs[i];
+            }
+            top.offer(candidate, score);
+            lead.next();
+        }
+    }
+
+    // Union in book id order; when the lists at the smallest book cannot beat the k-th score with
+    // their block maxima, they skip to their block end or to the next book of another list
+    private void searchAny(BlockPostingList.Cursor[] cursors, double[] idfs, TopK top) {
+        while (true) {
+            int pivot = Integer.MAX_VALUE;
+            for (BlockPostingList.Cursor cursor : cursors) {
+                pivot = Math.min(pivot, cursor.bookId());
+            }
+            if (pivot == Integer.MAX_VALUE) {
+                return;
+            }
+
+            double upperBound = 0;
+            long skipTo = Integer.MAX_VALUE;
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i].bookId() == pivot) {
+                    upperBound += cursors[i].blockMaxFrequency() * idfs[i];
+                    skipTo = Math.min(skipTo, cursors[i].blockLastBookId() + 1L);
+                } else {
+                    skipTo = Math.min(skipTo, cursors[i].bookId());
+                }
+            }
+
+            if (!top.canEnter(upperBound)) {
+                for (BlockPostingList.Cursor cursor : cursors) {
+                    if (cursor.bookId() == pivot) {
+                        cursor.advance((int) skipTo);
+                    }
+                }
+                continue;
+            }
+
+            double score = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                if (cursors[i].bookId() == pivot) {
+                    score += cursors[i].frequency() * idfs[i];
+                    cursors[i].next();
+                }
+            }
+            top.offer(pivot, score);
+        }
+    }
+
+    public static class ScoredBook {
+        private final int bookId;
+        private final double score;
+
+        public ScoredBook(int bookId, double score) {
+            this.bookId = bookId;
+            this.score = score;
+        }
+
+        public int getBookId() {
+            return bookId;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    // The k best books so far; a book must score strictly more than the k-th to get in
+    private static class TopK {
+        private final int k;
+        private final PriorityQueue<ScoredBook> heap = new PriorityQueue<>(
+                Comparator.comparingDouble(ScoredBook::getScore)
+                        .thenComparing(Comparator.comparingInt(ScoredBook::getBookId).reversed()));
+
+        private TopK(int k) {
+            this.k = k;
+        }
+
+        private boolean canEnter(double score) {
+            return heap.size() < k || score > heap.peek().getScore();
+        }
+
+        private void offer(int bookId, double score) {
+            if (!canEnter(score)) {
+                return;
+            }
+            heap.add(new ScoredBook(bookId, score));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+
+        private List<ScoredBook> sorted() {
+            List<ScoredBook> results = new ArrayList<>(heap);
+            results.sort(Comparator.comparingDouble(ScoredBook::getScore).reversed()
+                    .thenComparingInt(ScoredBook::getBookId));
+            return results;
+        }
+    }
+}
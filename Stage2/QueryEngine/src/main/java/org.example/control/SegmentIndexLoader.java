@@ -0,0 +1,134 @@
+package org.example.control;
+
+import org.example.interfaces.IndexLoader;
+import org.example.interfaces.TermLoader;
+import org.example.model.WordData;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Loads the binary <word>.seg files written by Indexer1 (SegmentFileManagerControl):
+// magic, version, word, total, book count, then per book id, positions, varint block; CRC32 at the end
+public class SegmentIndexLoader implements IndexLoader, TermLoader {
+
+    private static final int MAGIC = 0x49315347;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 6;
+    private static final int CHECKSUM_SIZE = 4;
+
+    @Override
+    public Map<String, Map<Integer, WordData>> loadIndex(String indexBasePath) throws Exception {
+        Map<String, Map<Integer, WordData>> index = new HashMap<>();
+        File baseFolder = new File(indexBasePath);
+
+        if (!baseFolder.exists() || !baseFolder.isDirectory()) {
+            throw new Exception("The base folder does not exist or is not a valid directory.");
+        }
+
+        for (File firstLetterFolder : baseFolder.listFiles(File::isDirectory)) {
+            for (File secondLetterFolder : firstLetterFolder.listFiles(File::isDirectory)) {
+                for (File file : secondLetterFolder.listFiles((dir, name) -> name.endsWith(".seg"))) {
+                    try {
+                        readSegment(file, index);
+                    } catch (Exception e) {
+                        System.err.printf("Error processing the file %s: %s%n", file.getName(), e.getMessage());
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public Map<Integer, WordData> loadTerm(String indexBasePath, String term) throws IOException {
+        File file = TSVIndexLoader.termFile(indexBasePath, term, ".seg");
+        if (!file.isFile()) {
+            return null;
+        }
+        Map<String, Map<Integer, WordData>> segment = new HashMap<>();
+        readSegment(file, segment);
+        return segment.get(term);
+    }
+
+    private void readSegment(File file, Map<String, Map<Integer, WordData>> index) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (bytes.length < HEADER_SIZE + CHECKSUM_SIZE) {
+            throw new IOException("truncated segment");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            throw new IOException("not a version " + VERSION + " segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - CHECKSUM_SIZE);
+        if ((int) crc.getValue() != buffer.getInt(bytes.length - CHECKSUM_SIZE)) {
+            throw new IOException("checksum mismatch");
+        }
+
+        Map<Integer, WordData> wordDataMap = new HashMap<>();
+        String word = readPostings(buffer, wordDataMap);
+        index.put(word, wordDataMap);
+    }
+
+    // Reads one WordPostings payload (word, total, books) into wordDataMap and returns the word.
+    // Books already in the map get the new positions appended, as for successive shard extents.
+    static String readPostings(ByteBuffer buffer, Map<Integer, WordData> wordDataMap) throws IOException {
+        // Written with DataOutput.writeUTF: unsigned short length, then modified UTF-8
+        int wordLength = buffer.getShort(buffer.position()) & 0xFFFF;
+        String word = new DataInputStream(new ByteArrayInputStream(
+                buffer.array(), buffer.arrayOffset() + buffer.position(), wordLength + 2)).readUTF();
+        buffer.position(buffer.position() + wordLength + 2);
+        buffer.getInt(); // total, the sum of the book counts below
+        int books = buffer.getInt();
+
+        for (int i = 0; i < books; i++) {
+            int bookId = buffer.getInt();
+            int size = buffer.getInt();
+            int blockEnd = buffer.getInt() + buffer.position();
+
+            WordData wordData = wordDataMap.get(bookId);
+            if (wordData == null) {
+                wordData = new WordData(size);
+                wordDataMap.put(bookId, wordData);
+            } else {
+                wordData.incrementTotalOccurrences(size);
+            }
+            int line = 0;
+            int wordIndex = 0;
+            for (int p = 0; p < size; p++) {
+                int previousLine = line;
+                line += unzigzag(readVarInt(buffer));
+                int wordValue = unzigzag(readVarInt(buffer));
+                wordIndex = line == previousLine ? wordIndex + wordValue : wordValue;
+                wordData.addPosition(line, wordIndex);
+            }
+            if (buffer.position() != blockEnd) {
+                throw new IOException("malformed position block for book " + bookId);
+            }
+        }
+        return word;
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,256 @@
+package org.example.control;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reader for the <c>/<cc>.shard files written by the indexers:
+// appended payloads, then a term table sorted by term (term -> extents) and a fixed footer.
+// A term read back returns its payloads in the order they were appended. Appends go after the
+// end of the file, so after a crashed append the last complete footer is the valid one.
+// The table ends with the int offset of every term record and the term count, so a single term is
+// found by a binary search over those offsets that reads only the probed records.
+public class ShardFile {
+
+    public static final String EXTENSION = ".shard";
+    private static final int MAGIC = 0x53485244; // "SHRD"
+    private static final int FOOTER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 4;
+    private static final int EXTENT_SIZE = 12;
+    // Bytes read at a time when looking for the last complete footer after a torn append
+    private static final int SCAN_BLOCK_SIZE = 1 << 16;
+
+    private final Path path;
+
+    public ShardFile(Path path) {
+        this.path = path;
+    }
+
+    // <root>/<c>/<cc>.shard, the file that replaces the <root>/<c>/<cc>/ directory of a word
+    public static ShardFile forWord(String root, String word) {
+        String firstLetter = word.substring(0, 1);
+        String twoFirstLetters = word.length() > 1 ? word.substring(0, 2) : firstLetter;
+        return new ShardFile(Paths.get(root, firstLetter, twoFirstLetters + EXTENSION));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // The payloads appended for term, oldest first, or an empty list when the term is not in the shard
+    public List<byte[]> read(String term) throws IOException {
+        List<byte[]> payloads = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return payloads;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long[] extent : findExtents(channel, term)) {
+                payloads.add(readFully(channel, extent[0], (int) extent[1]));
+            }
+        }
+        return payloads;
+    }
+
+    // Like read(term), but the payloads are slices of the memory-mapped shard instead of copies
+    public List<ByteBuffer> map(String term) throws IOException {
+        List<ByteBuffer> payloads = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return payloads;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // One mapping per extent, so offsets past 2 GB work; mappings stay valid after the channel is closed
+            for (long[] extent : findExtents(channel, term)) {
+                payloads.add(channel.map(FileChannel.MapMode.READ_ONLY, extent[0], extent[1]));
+            }
+        }
+        return payloads;
+    }
+
+    // Every term of the shard with its payloads, in term order
+    public Map<String, List<byte[]>> readAll() throws IOException {
+        Map<String, List<byte[]>> terms = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return terms;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            TermTable table = decodeTable(channel, locateTable(channel));
+            if (table == null) {
+                throw new IOException("Corrupt shard file: " + path);
+            }
+            for (int i = 0; i < table.terms.length; i++) {
+                List<byte[]> payloads = new ArrayList<>(table.extents.get(i).size());
+                for (long[] extent : table.extents.get(i)) {
+                    payloads.add(readFully(channel, extent[0], (int) extent[1]));
+                }
+                terms.put(table.terms[i], payloads);
+            }
+        }
+        return terms;
+    }
+
+    // The extents of term, found by a binary search of the record offsets at the end of the table
+    private List<long[]> findExtents(FileChannel channel, String term) throws IOException {
+        TableBounds bounds = locateTable(channel);
+        ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, bounds.offset, bounds.length);
+        int count = table.getInt(bounds.length - 4);
+        int indexStart = bounds.length - 4 - count * INDEX_ENTRY_SIZE;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            ByteBuffer record = table.duplicate().position(table.getInt(indexStart + middle * INDEX_ENTRY_SIZE));
+            int comparison = readUTF(record).compareTo(term);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                int extents = record.getInt();
+                List<long[]> list = new ArrayList<>(extents);
+                for (int e = 0; e < extents; e++) {
+                    list.add(new long[]{record.getLong(), record.getInt()});
+                }
+                return list;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    // A term written with DataOutput.writeUTF: unsigned short length, then modified UTF-8
+    private static String readUTF(ByteBuffer buffer) throws IOException {
+        byte[] bytes = new byte[(buffer.getShort(buffer.position()) & 0xFFFF) + 2];
+        buffer.get(bytes);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+
+    // The table of the last complete footer. A footer is normally the last 16 bytes; after a crash
+    // in the middle of an append the file is searched backwards for the footer the append left intact,
+    // and a candidate is only taken once its whole table decodes.
+    private TableBounds locateTable(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < FOOTER_SIZE) {
+            throw new IOException("Truncated shard file: " + path);
+        }
+        TableBounds bounds = boundsEndingAt(channel, size);
+        if (bounds != null) {
+            return bounds;
+        }
+
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+        long blockEnd = size - 1;
+        while (blockEnd >= FOOTER_SIZE) {
+            long blockStart = Math.max(0, blockEnd - SCAN_BLOCK_SIZE + 4);
+            block.clear().limit((int) (blockEnd - blockStart));
+            while (block.hasRemaining()) {
+                if (channel.read(block, blockStart + block.position()) < 0) {
+                    throw new IOException("Unexpected end of shard file");
+                }
+            }
+            // Candidate footer ends, from the latest one back; the magic number is their last 4 bytes
+            for (int i = block.limit() - 4; i >= 0; i--) {
+                long end = blockStart + i + 4;
+                if (end >= FOOTER_SIZE && block.getInt(i) == MAGIC) {
+                    bounds = boundsEndingAt(channel, end);
+                    if (bounds != null && decodeTable(channel, bounds) != null) {
+                        return bounds;
+                    }
+                }
+            }
+            blockEnd = blockStart + 3;
+        }
+        throw new IOException("Corrupt shard file: " + path);
+    }
+
+    // The table whose footer ends at end, or null when no complete footer ends there
+    private static TableBounds boundsEndingAt(FileChannel channel, long end) throws IOException {
+        ByteBuffer footer = ByteBuffer.wrap(readFully(channel, end - FOOTER_SIZE, FOOTER_SIZE));
+        long tableOffset = footer.getLong();
+        int tableLength = footer.getInt();
+        if (footer.getInt() != MAGIC || tableOffset < 0 || tableLength < 4
+                || tableOffset + tableLength + FOOTER_SIZE != end) {
+            return null;
+        }
+        int count = ByteBuffer.wrap(readFully(channel, tableOffset + tableLength - 4, 4)).getInt();
+        if (count < 0 || count > (tableLength - 4) / INDEX_ENTRY_SIZE) {
+            return null;
+        }
+        return new TableBounds(tableOffset, tableLength);
+    }
+
+    // The decoded table, or null when its records and index do not agree
+    private static TermTable decodeTable(FileChannel channel, TableBounds bounds) throws IOException {
+        ByteBuffer table = ByteBuffer.wrap(readFully(channel, bounds.offset, bounds.length));
+        int count = table.getInt(bounds.length - 4);
+        int indexStart = bounds.length - 4 - count * INDEX_ENTRY_SIZE;
+        TermTable decoded = new TermTable(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                if (table.position() != table.getInt(indexStart + i * INDEX_ENTRY_SIZE)
+                        || table.position() + 2 > indexStart) {
+                    return null;
+                }
+                decoded.terms[i] = readUTF(table);
+                if (i > 0 && decoded.terms[i - 1].compareTo(decoded.terms[i]) >= 0) {
+                    return null;
+                }
+                int extents = table.getInt();
+                if (extents < 0 || extents > (indexStart - table.position()) / EXTENT_SIZE) {
+                    return null;
+                }
+                List<long[]> list = new ArrayList<>(extents);
+                for (int e = 0; e < extents; e++) {
+                    long[] extent = {table.getLong(), table.getInt()};
+                    if (extent[0] < 0 || extent[1] < 0 || extent[0] + extent[1] > bounds.offset) {
+                        return null;
+                    }
+                    list.add(extent);
+                }
+                decoded.extents.add(list);
+            }
+        } catch (RuntimeException | IOException e) {
+            // Ran past the records: not a table
+            return null;
+        }
+        return table.position() == indexStart ? decoded : null;
+    }
+
+    private static byte[] readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of shard file");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static class TableBounds {
+        private final long offset;
+        private final int length;
+
+        private TableBounds(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class TermTable {
+        private final String[] terms;
+        private final List<List<long[]>> extents;
+
+        private TermTable(int count) {
+            this.terms = new String[count];
+            this.extents = new ArrayList<>(count);
+        }
+    }
+}
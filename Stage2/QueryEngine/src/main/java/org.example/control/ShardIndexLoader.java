@@ -0,0 +1,81 @@
+package org.example.control;
+
+import org.example.interfaces.IndexLoader;
+import org.example.interfaces.TermLoader;
+import org.example.model.WordData;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Loads the prefix-sharded layout: one <c>/<cc>.shard file per two-letter prefix.
+// Indexer1 shards hold binary WordPostings payloads, Indexer2 shards hold header-less TSV rows.
+public class ShardIndexLoader implements IndexLoader, TermLoader {
+
+    public enum Payload {
+        POSTINGS,
+        TSV
+    }
+
+    private final Payload payload;
+
+    public ShardIndexLoader(Payload payload) {
+        this.payload = payload;
+    }
+
+    @Override
+    public Map<String, Map<Integer, WordData>> loadIndex(String indexBasePath) throws Exception {
+        Map<String, Map<Integer, WordData>> index = new HashMap<>();
+        File baseFolder = new File(indexBasePath);
+
+        if (!baseFolder.exists() || !baseFolder.isDirectory()) {
+            throw new Exception("The base folder does not exist or is not a valid directory.");
+        }
+
+        for (File firstLetterFolder : baseFolder.listFiles(File::isDirectory)) {
+            for (File file : firstLetterFolder.listFiles((dir, name) -> name.endsWith(ShardFile.EXTENSION))) {
+                try {
+                    for (Map.Entry<String, List<byte[]>> term : new ShardFile(file.toPath()).readAll().entrySet()) {
+                        index.put(term.getKey(), decode(term.getValue()));
+                    }
+                } catch (Exception e) {
+                    System.err.printf("Error processing the file %s: %s%n", file.getName(), e.getMessage());
+                }
+            }
+        }
+        return index;
+    }
+
+    // Seeks to a single term in its shard without loading the rest of the index
+    @Override
+    public Map<Integer, WordData> loadTerm(String indexBasePath, String term) throws IOException {
+        String firstLetter = term.substring(0, 1);
+        String twoFirstLetters = term.length() > 1 ? term.substring(0, 2) : firstLetter;
+        List<byte[]> payloads = new ShardFile(
+                Paths.get(indexBasePath, firstLetter, twoFirstLetters + ShardFile.EXTENSION)).read(term);
+        return payloads.isEmpty() ? null : decode(payloads);
+    }
+
+    private Map<Integer, WordData> decode(List<byte[]> payloads) throws IOException {
+        Map<Integer, WordData> wordDataMap = new HashMap<>();
+        for (byte[] bytes : payloads) {
+            if (payload == Payload.POSTINGS) {
+                SegmentIndexLoader.readPostings(ByteBuffer.wrap(bytes), wordDataMap);
+            } else {
+                for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+                    String[] parts = line.split("\t");
+                    if (parts.length < 3) {
+                        continue;
+                    }
+                    TSVIndexLoader.addRow(parts, wordDataMap);
+                }
+            }
+        }
+        return wordDataMap;
+    }
+}
@@ -3,22 +3,27 @@ package org.example.control;
 import org.example.interfaces.QueryProcessor;
 import org.example.model.Metadata;
 import org.example.model.WordData;
-import org.example.model.WordPosition;
 
 import java.util.Map;
+import java.util.function.Function;
 
 public class SimpleQueryProcessor implements QueryProcessor {
-    private final Map<String, Map<Integer, WordData>> index;
+    // A loaded index, or a reader that fetches each term when it is queried
+    private final Function<String, Map<Integer, WordData>> index;
     private final Map<Integer, Metadata> metadata;
 
     public SimpleQueryProcessor(Map<String, Map<Integer, WordData>> index, Map<Integer, Metadata> metadata) {
+        this(index::get, metadata);
+    }
+
+    public SimpleQueryProcessor(Function<String, Map<Integer, WordData>> index, Map<Integer, Metadata> metadata) {
         this.index = index;
         this.metadata = metadata;
     }
 
     public void processQuery(String query) {
         query = query.toLowerCase();
-        Map<Integer, WordData> results = index.get(query);
+        Map<Integer, WordData> results = index.apply(query);
 
         if (results == null || results.isEmpty()) {
             System.out.printf("No results found for the word: %s%n", query);
@@ -40,8 +45,8 @@ public class SimpleQueryProcessor implements QueryProcessor {
                 System.out.printf("Book ID: %d ", bookId);
             }
 
-            for (WordPosition position : wordData.getPositions()) {
-                System.out.printf("  - Line: %d\n", position.getLine());
+            for (int i = 0; i < wordData.getPositionCount(); i++) {
+                System.out.printf("  - Line: %d\n", wordData.getLine(i));
             }
         }
     }
@@ -0,0 +1,46 @@
+package org.example.control;
+
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+// Decides which terms of a multi-term query are too common to be worth scoring:
+// the listed stop terms, plus any term found in more than maxBookFraction of the books.
+// A query made only of stop terms keeps them all, so it still gets an answer.
+public class StopTermPolicy {
+
+    private final Set<String> stopTerms;
+    private final double maxBookFraction;
+    // Books per term from the term dictionary, or null when there is none
+    private final ToIntFunction<String> documentFrequency;
+
+    public StopTermPolicy(Set<String> stopTerms, double maxBookFraction) {
+        this(stopTerms, maxBookFraction, null);
+    }
+
+    public StopTermPolicy(Set<String> stopTerms, double maxBookFraction, ToIntFunction<String> documentFrequency) {
+        this.stopTerms = stopTerms;
+        this.maxBookFraction = maxBookFraction;
+        this.documentFrequency = documentFrequency;
+    }
+
+    // No stop terms at all
+    public static StopTermPolicy none() {
+        return new StopTermPolicy(Set.of(), 1.0);
+    }
+
+    public boolean isStopTerm(String term, int bookFrequency, int totalBooks) {
+        if (stopTerms.contains(term)) {
+            return true;
+        }
+        return totalBooks > 0 && bookFrequency > maxBookFraction * totalBooks;
+    }
+
+    // A stop term that is known before its postings are read: a listed one, or a frequent one
+    // according to the document frequencies
+    public boolean isKnownStopTerm(String term, int totalBooks) {
+        if (stopTerms.contains(term)) {
+            return true;
+        }
+        return documentFrequency != null && isStopTerm(term, documentFrequency.applyAsInt(term), totalBooks);
+    }
+}
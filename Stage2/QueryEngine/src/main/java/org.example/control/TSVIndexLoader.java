@@ -1,59 +1,108 @@
 package org.example.control;
 
 import org.example.interfaces.IndexLoader;
+import org.example.interfaces.TermLoader;
 import org.example.model.WordData;
-import org.example.model.WordPosition;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
-public class TSVIndexLoader implements IndexLoader {
+public class TSVIndexLoader implements IndexLoader, TermLoader {
+
+    // Threads that parse word files concurrently in loadIndex, 1 keeps the sequential walk
+    private final int parallelism;
+
+    public TSVIndexLoader() {
+        this(1);
+    }
+
+    public TSVIndexLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     @Override
     public Map<String, Map<Integer, WordData>> loadIndex(String directoryPath) throws Exception {
         Map<String, Map<Integer, WordData>> index = new HashMap<>();
         File directory = new File(directoryPath);
 
+        if (parallelism > 1) {
+            return new ParallelDatamartLoader(".tsv", (file, wordIndex) ->
+                    wordIndex.put(file.getName().replace(".tsv", ""), readFile(file))).load(directory, parallelism);
+        }
+
         for (File firstLetter : directory.listFiles(File::isDirectory)) {
             for (File secondLetter : firstLetter.listFiles(File::isDirectory)) {
                 for (File file : secondLetter.listFiles((f) -> f.getName().endsWith(".tsv"))) {
-                    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                        String word = file.getName().replace(".tsv", "");
-                        Map<Integer, WordData> wordDataMap = new HashMap<>();
-                        String line;
+                    String word = file.getName().replace(".tsv", "");
+                    index.put(word, readFile(file));
+                }
+            }
+        }
+        return index;
+    }
 
-                        reader.readLine(); // Skip header line
+    @Override
+    public Map<Integer, WordData> loadTerm(String indexBasePath, String term) throws IOException {
+        File file = termFile(indexBasePath, term, ".tsv");
+        return file.isFile() ? readFile(file) : null;
+    }
 
-                        while ((line = reader.readLine()) != null) {
-                            String[] parts = line.split("\t");
+    // <base>/<c>/<cc>/<term><extension>, the per-word layout of both indexers
+    static File termFile(String indexBasePath, String term, String extension) {
+        String firstLetter = term.substring(0, 1);
+        String twoFirstLetters = term.length() > 1 ? term.substring(0, 2) : firstLetter;
+        return new File(indexBasePath + "/" + firstLetter + "/" + twoFirstLetters, term + extension);
+    }
 
-                            if (parts.length < 3) {
-                                System.err.printf("Skipping invalid line in file %s: %s%n", file.getName(), line);
-                                continue;
-                            }
+    private static Map<Integer, WordData> readFile(File file) throws IOException {
+        Map<Integer, WordData> wordDataMap = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
 
-                            int bookId = Integer.parseInt(parts[0]);
-                            int lineNumber = Integer.parseInt(parts[1]);
-                            int occurrences = Integer.parseInt(parts[2]);
+            reader.readLine(); // Skip header line
 
-                            WordData wordData = wordDataMap.getOrDefault(bookId, new WordData(0));
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
 
-                            // Add each occurrence as a separate position
-                            for (int i = 0; i < occurrences; i++) {
-                                wordData.incrementTotalOccurrences(1);
-                                wordData.addPosition(new WordPosition(lineNumber, i + 1)); // Positions start at 1
-                            }
+                if (parts.length < 3) {
+                    System.err.printf("Skipping invalid line in file %s: %s%n", file.getName(), line);
+                    continue;
+                }
 
-                            wordDataMap.put(bookId, wordData);
-                        }
+                addRow(parts, wordDataMap);
+            }
+        }
+        return wordDataMap;
+    }
 
-                        index.put(word, wordDataMap);
-                    }
-                }
+    // Adds one Book_ID, Line, Occurrences[, Positions] row to the postings of its word
+    static void addRow(String[] parts, Map<Integer, WordData> wordDataMap) {
+        int bookId = Integer.parseInt(parts[0]);
+        int lineNumber = Integer.parseInt(parts[1]);
+        int occurrences = Integer.parseInt(parts[2]);
+
+        WordData wordData = wordDataMap.getOrDefault(bookId, new WordData(0));
+
+        if (parts.length > 3) {
+            // Positional rows: the first word offset, then the gap to each next one
+            int offset = 0;
+            for (String gap : parts[3].split(",")) {
+                offset += Integer.parseInt(gap);
+                wordData.incrementTotalOccurrences(1);
+                wordData.addPosition(lineNumber, offset);
+            }
+        } else {
+            // Rows without positions only give the count, so offsets are numbered from 1
+            for (int i = 0; i < occurrences; i++) {
+                wordData.incrementTotalOccurrences(1);
+                wordData.addPosition(lineNumber, i + 1);
             }
         }
-        return index;
+
+        wordDataMap.put(bookId, wordData);
     }
 }
@@ -0,0 +1,246 @@
+package org.example.control;
+
+import org.example.model.WordData;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Memory-mapped vocabulary of a datamart: every term with its document frequency and total occurrences,
+// so existence and frequency lookups need neither a directory walk nor a postings file.
+// It is a snapshot: the header keeps the datamart's last modification time when it was built, and
+// isCurrent() tells whether indexing has changed the datamart since.
+// Terms are sorted by their UTF-8 bytes and front-coded in blocks of BLOCK_SIZE terms:
+//   header   magic, version, datamart modification time, term count, block count,
+//            block offsets (int each, from the data start)
+//   block    first term in full (varint length, bytes), then for every other term the varint length
+//            of the prefix it shares with the previous one and its varint-prefixed suffix;
+//            each term is followed by its varint document frequency and varint total occurrences
+// A lookup binary searches the first terms of the blocks and decodes a single block.
+public class TermDictionary {
+
+    public static final String FILE_NAME = "terms.dict";
+
+    private static final int MAGIC = 0x54444943; // "TDIC"
+    private static final short VERSION = 2;
+    private static final int BLOCK_SIZE = 16;
+    private static final int HEADER_SIZE = 22;
+
+    private final ByteBuffer buffer;
+    private final long datamartModified;
+    private final int termCount;
+    private final int blockCount;
+    private final int dataStart;
+
+    private TermDictionary(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " term dictionary");
+        }
+        this.datamartModified = buffer.getLong(6);
+        this.termCount = buffer.getInt(14);
+        this.blockCount = buffer.getInt(18);
+        this.dataStart = HEADER_SIZE + 4 * blockCount;
+        if (termCount < 0 || blockCount < 0 || dataStart > buffer.limit()) {
+            throw new IOException("Truncated term dictionary");
+        }
+    }
+
+    // Maps the file; nothing is read until the first lookup, whatever the vocabulary size
+    public static TermDictionary open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new TermDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Latest modification time of the datamart's <c> and <c>/<cc> directories and <c>/<cc>.shard files.
+    // A new term adds a file to one of them (or a term to a shard), so it moves whenever the vocabulary
+    // may have grown, without listing the word files themselves
+    public static long datamartModified(String indexBasePath) {
+        long modified = 0;
+        File[] firstLetterFolders = new File(indexBasePath).listFiles(File::isDirectory);
+        if (firstLetterFolders == null) {
+            return modified;
+        }
+        for (File firstLetterFolder : firstLetterFolders) {
+            modified = Math.max(modified, firstLetterFolder.lastModified());
+            File[] entries = firstLetterFolder.listFiles();
+            if (entries != null) {
+                for (File entry : entries) {
+                    modified = Math.max(modified, entry.lastModified());
+                }
+            }
+        }
+        return modified;
+    }
+
+    // Writes the vocabulary of a loaded index, replacing the previous dictionary atomically.
+    // datamartModified is taken before the index is loaded, so writes during the load make it stale
+    public static void write(Map<String, Map<Integer, WordData>> index, Path path, long datamartModified)
+            throws IOException {
+        List<Map.Entry<byte[], Map<Integer, WordData>>> terms = new ArrayList<>(index.size());
+        for (Map.Entry<String, Map<Integer, WordData>> entry : index.entrySet()) {
+            terms.add(Map.entry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+        }
+        terms.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        List<Integer> blockOffsets = new ArrayList<>();
+        byte[] previous = null;
+        for (int i = 0; i < terms.size(); i++) {
+            byte[] term = terms.get(i).getKey();
+            if (i % BLOCK_SIZE == 0) {
+                blockOffsets.add(data.size());
+                writeVarLong(data, term.length);
+                data.write(term, 0, term.length);
+            } else {
+                // Distinct terms, so a mismatch of -1 (equal) cannot happen
+                int shared = Arrays.mismatch(previous, term);
+                writeVarLong(data, shared);
+                writeVarLong(data, term.length - shared);
+                data.write(term, shared, term.length - shared);
+            }
+
+            Map<Integer, WordData> postings = terms.get(i).getValue();
+            long totalOccurrences = 0;
+            for (WordData wordData : postings.values()) {
+                totalOccurrences += wordData.getTotalOccurrences();
+            }
+            writeVarLong(data, postings.size());
+            writeVarLong(data, totalOccurrences);
+            previous = term;
+        }
+
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(datamartModified);
+            out.writeInt(terms.size());
+            out.writeInt(blockOffsets.size());
+            for (int offset : blockOffsets) {
+                out.writeInt(offset);
+            }
+            data.writeTo(out);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int size() {
+        return termCount;
+    }
+
+    // False once the datamart has been written to after the dictionary was built; a stale dictionary
+    // would answer the terms indexed since as not indexed
+    public boolean isCurrent(String indexBasePath) {
+        return datamartModified(indexBasePath) <= datamartModified;
+    }
+
+    public boolean contains(String term) {
+        return find(term) >= 0;
+    }
+
+    // Books the term appears in, 0 when it is not indexed
+    public int getDocumentFrequency(String term) {
+        int position = find(term);
+        return position < 0 ? 0 : readVarInt(buffer.duplicate().position(position));
+    }
+
+    public long getTotalOccurrences(String term) {
+        int position = find(term);
+        if (position < 0) {
+            return 0;
+        }
+        ByteBuffer entry = buffer.duplicate().position(position);
+        readVarInt(entry);
+        return readVarLong(entry);
+    }
+
+    // Position of the term's frequencies, or -1 when it is not in the dictionary
+    private int find(String term) {
+        if (blockCount == 0) {
+            return -1;
+        }
+        byte[] target = term.getBytes(StandardCharsets.UTF_8);
+
+        // Last block whose first term is <= target
+        int low = 0;
+        int high = blockCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (Arrays.compareUnsigned(firstTerm(middle), target) <= 0) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        ByteBuffer block = buffer.duplicate().position(dataStart + buffer.getInt(HEADER_SIZE + 4 * low));
+        int termsInBlock = Math.min(BLOCK_SIZE, termCount - low * BLOCK_SIZE);
+        byte[] current = new byte[0];
+        for (int i = 0; i < termsInBlock; i++) {
+            int shared = i == 0 ? 0 : readVarInt(block);
+            byte[] next = Arrays.copyOf(current, shared + readVarInt(block));
+            block.get(next, shared, next.length - shared);
+            current = next;
+
+            int comparison = Arrays.compareUnsigned(current, target);
+            if (comparison == 0) {
+                return block.position();
+            }
+            if (comparison > 0) {
+                return -1;
+            }
+            readVarInt(block);
+            readVarLong(block);
+        }
+        return -1;
+    }
+
+    private byte[] firstTerm(int block) {
+        ByteBuffer entry = buffer.duplicate().position(dataStart + buffer.getInt(HEADER_SIZE + 4 * block));
+        byte[] term = new byte[readVarInt(entry)];
+        entry.get(term);
+        return term;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        return (int) readVarLong(buffer);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.interfaces;
+
+import org.example.model.WordData;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Reads the postings of a single term straight from the datamart, null when the term is not indexed
+public interface TermLoader {
+    Map<Integer, WordData> loadTerm(String indexBasePath, String term) throws IOException;
+}
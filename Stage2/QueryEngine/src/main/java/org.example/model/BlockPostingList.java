@@ -0,0 +1,114 @@
+package org.example.model;
+
+import java.util.Arrays;
+import java.util.Map;
+
+// Book-level postings of one term (book id, occurrences) sorted by book id and cut into blocks.
+// Every block keeps its last book id as a skip pointer and its highest occurrence count,
+// so intersections can jump over blocks that cannot hold the target book and top-k scoring
+// over blocks that cannot beat the current k-th result.
+public class BlockPostingList {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128;
+
+    private final int[] bookIds;
+    private final int[] frequencies;
+    private final int blockSize;
+    private final int[] blockLastBookIds;
+    private final int[] blockMaxFrequencies;
+
+    private BlockPostingList(int[] bookIds, int[] frequencies, int blockSize) {
+        this.bookIds = bookIds;
+        this.frequencies = frequencies;
+        this.blockSize = Math.max(1, blockSize);
+
+        int blocks = bookIds.length == 0 ? 0 : (bookIds.length - 1) / this.blockSize + 1;
+        this.blockLastBookIds = new int[blocks];
+        this.blockMaxFrequencies = new int[blocks];
+        for (int block = 0; block < blocks; block++) {
+            int start = block * this.blockSize;
+            int end = Math.min(start + this.blockSize, bookIds.length);
+            blockLastBookIds[block] = bookIds[end - 1];
+            for (int i = start; i < end; i++) {
+                blockMaxFrequencies[block] = Math.max(blockMaxFrequencies[block], frequencies[i]);
+            }
+        }
+    }
+
+    public static BlockPostingList fromWordData(Map<Integer, WordData> postings, int blockSize) {
+        int[] bookIds = new int[postings.size()];
+        int i = 0;
+        for (Integer bookId : postings.keySet()) {
+            bookIds[i++] = bookId;
+        }
+        Arrays.sort(bookIds);
+
+        int[] frequencies = new int[bookIds.length];
+        for (i = 0; i < bookIds.length; i++) {
+            frequencies[i] = postings.get(bookIds[i]).getTotalOccurrences();
+        }
+        return new BlockPostingList(bookIds, frequencies, blockSize);
+    }
+
+    // Books the term appears in
+    public int size() {
+        return bookIds.length;
+    }
+
+    public int getBlockCount() {
+        return blockLastBookIds.length;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Walks the list in book id order; bookId() is Integer.MAX_VALUE once the list is exhausted
+    public class Cursor {
+        private int index;
+
+        public boolean isExhausted() {
+            return index >= bookIds.length;
+        }
+
+        public int bookId() {
+            return isExhausted() ? Integer.MAX_VALUE : bookIds[index];
+        }
+
+        public int frequency() {
+            return frequencies[index];
+        }
+
+        public int blockLastBookId() {
+            return isExhausted() ? Integer.MAX_VALUE : blockLastBookIds[index / blockSize];
+        }
+
+        public int blockMaxFrequency() {
+            return isExhausted() ? 0 : blockMaxFrequencies[index / blockSize];
+        }
+
+        public void next() {
+            index++;
+        }
+
+        // Moves to the first book >= target: whole blocks are skipped by their last book id,
+        // then the block that may hold target is binary searched
+        public void advance(int target) {
+            if (isExhausted() || bookIds[index] >= target) {
+                return;
+            }
+            int block = index / blockSize;
+            while (block < blockLastBookIds.length && blockLastBookIds[block] < target) {
+                block++;
+            }
+            if (block == blockLastBookIds.length) {
+                index = bookIds.length;
+                return;
+            }
+            int from = Math.max(index, block * blockSize);
+            int to = Math.min((block + 1) * blockSize, bookIds.length);
+            int found = Arrays.binarySearch(bookIds, from, to, target);
+            index = found >= 0 ? found : -found - 1;
+        }
+    }
+}
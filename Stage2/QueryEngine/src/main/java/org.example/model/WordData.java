@@ -1,19 +1,32 @@
 package org.example.model;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
+// Occurrences of a word in one book. Positions are packed as (line, wordIndex) int pairs instead of
+// a WordPosition object each; the array is sized for initialOccurrences positions up front.
 public class WordData {
     private int totalOccurrences;
-    private final List<WordPosition> positions;
+    private int[] positions;
+    private int positionCount;
 
     public WordData(int initialOccurrences) {
         this.totalOccurrences = initialOccurrences;
-        this.positions = new ArrayList<>();
+        this.positions = new int[Math.max(0, initialOccurrences) * 2];
     }
 
     public void addPosition(WordPosition position) {
-        positions.add(position);
+        addPosition(position.getLine(), position.getOccurrences());
+    }
+
+    public void addPosition(int line, int wordIndex) {
+        if (positionCount * 2 == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(8, positions.length * 2));
+        }
+        positions[positionCount * 2] = line;
+        positions[positionCount * 2 + 1] = wordIndex;
+        positionCount++;
     }
 
     public void incrementOccurrences(int occurrences) {
@@ -32,7 +45,33 @@ public class WordData {
         this.totalOccurrences = totalOccurrences;
     }
 
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    public int getLine(int index) {
+        return positions[index * 2];
+    }
+
+    public int getWordIndex(int index) {
+        return positions[index * 2 + 1];
+    }
+
+    // Read-only view, a WordPosition is only created for the element being read
     public List<WordPosition> getPositions() {
-        return positions;
+        return new AbstractList<WordPosition>() {
+            @Override
+            public WordPosition get(int index) {
+                if (index < 0 || index >= positionCount) {
+                    throw new IndexOutOfBoundsException("Position " + index + " of " + positionCount);
+                }
+                return new WordPosition(getLine(index), getWordIndex(index));
+            }
+
+            @Override
+            public int size() {
+                return positionCount;
+            }
+        };
     }
 }
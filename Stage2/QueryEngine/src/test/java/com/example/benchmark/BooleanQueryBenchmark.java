@@ -0,0 +1,82 @@
+package com.example.benchmark;
+
+import org.example.control.BooleanQueryProcessor;
+import org.example.model.WordData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// AND of a rare word with two common ones over a synthetic index: BooleanQueryProcessor gallops
+// through the sorted book ids of the common words, the baseline copies the key set of the first
+// posting map and retains the others' keys, as intersecting the HashMaps directly would.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BooleanQueryBenchmark {
+
+    private static final int BOOKS = 50_000;
+    private static final long MAX_CACHED_BOOKS = 5_000_000;
+
+    private Map<String, Map<Integer, WordData>> index;
+    private BooleanQueryProcessor processor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        index = new HashMap<>();
+        index.put("the", postings(random, 1.0));
+        index.put("whale", postings(random, 0.3));
+        index.put("harpoon", postings(random, 0.001));
+
+        processor = new BooleanQueryProcessor(index::get, new HashMap<>(), 1, MAX_CACHED_BOOKS, 10);
+    }
+
+    private static Map<Integer, WordData> postings(Random random, double bookFraction) {
+        Map<Integer, WordData> postings = new HashMap<>();
+        for (int bookId = 1; bookId <= BOOKS; bookId++) {
+            if (random.nextDouble() < bookFraction) {
+                postings.put(bookId, new WordData(1));
+            }
+        }
+        return postings;
+    }
+
+    @Benchmark
+    public int[] gallopingIntersection() {
+        return processor.search("the AND whale AND harpoon");
+    }
+
+    @Benchmark
+    public Set<Integer> hashMapIntersection() {
+        Set<Integer> books = new HashSet<>(index.get("the").keySet());
+        books.retainAll(index.get("whale").keySet());
+        books.retainAll(index.get("harpoon").keySet());
+        return books;
+    }
+
+    @Benchmark
+    public int[] excludeCommonWord() {
+        return processor.search("harpoon NOT whale");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(BooleanQueryBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.benchmark;
+
+import org.example.control.JSONIndexLoader;
+import org.example.control.LazyIndexLoader;
+import org.example.control.SegmentIndexLoader;
+import org.example.control.TermDictionary;
+import org.example.interfaces.IndexLoader;
+import org.example.model.WordData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Startup cost of loading the Indexer1 datamart from JSON files versus binary segments.
+// The .seg files can be produced from the JSON ones with Indexer1's JsonToSegmentConverter.
+// The parallel case splits the JSON files over one thread per core,
+// the lazy case only reads the file of the first queried term and the dictionary case maps terms.dict
+// (written by running QueryEngine with build-dictionary) and reads the first term's document frequency.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IndexLoadBenchmark {
+
+    private static final String INDEX_PATH = "datamart/reverse_indexes_indexer1";
+    private static final String QUERY_TERM = "whale";
+
+    @Benchmark
+    public Map<String, Map<Integer, WordData>> loadJSON() throws Exception {
+        IndexLoader loader = new JSONIndexLoader();
+        return loader.loadIndex(INDEX_PATH);
+    }
+
+    @Benchmark
+    public Map<String, Map<Integer, WordData>> loadJSONParallel() throws Exception {
+        IndexLoader loader = new JSONIndexLoader(Runtime.getRuntime().availableProcessors());
+        return loader.loadIndex(INDEX_PATH);
+    }
+
+    @Benchmark
+    public Map<String, Map<Integer, WordData>> loadSegments() throws Exception {
+        IndexLoader loader = new SegmentIndexLoader();
+        return loader.loadIndex(INDEX_PATH);
+    }
+
+    @Benchmark
+    public Map<Integer, WordData> lazyFirstQuery() {
+        return new LazyIndexLoader(new JSONIndexLoader(), INDEX_PATH, Long.MAX_VALUE).get(QUERY_TERM);
+    }
+
+    @Benchmark
+    public int openDictionary() throws Exception {
+        TermDictionary dictionary = TermDictionary.open(Paths.get(INDEX_PATH, TermDictionary.FILE_NAME));
+        return dictionary.getDocumentFrequency(QUERY_TERM);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(IndexLoadBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.benchmark;
+
+import org.example.control.JSONIndexLoader;
+import org.example.interfaces.IndexLoader;
+import org.example.model.WordData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Loading the Indexer1 JSON datamart through a JsonObject tree per file (the previous loader)
+// versus streaming each file with JsonReader into the packed WordData positions.
+// Run with -prof gc to compare the allocation rate as well as the time.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonLoadBenchmark {
+
+    private static final String INDEX_PATH = "datamart/reverse_indexes_indexer1";
+
+    @Benchmark
+    public Map<String, Map<Integer, WordData>> treeParser() throws Exception {
+        IndexLoader loader = new TreeJSONIndexLoader();
+        return loader.loadIndex(INDEX_PATH);
+    }
+
+    @Benchmark
+    public Map<String, Map<Integer, WordData>> streamingParser() throws Exception {
+        IndexLoader loader = new JSONIndexLoader();
+        return loader.loadIndex(INDEX_PATH);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(JsonLoadBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
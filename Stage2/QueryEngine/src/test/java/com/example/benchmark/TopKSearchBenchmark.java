@@ -0,0 +1,144 @@
+package com.example.benchmark;
+
+import org.example.control.RankedQueryProcessor;
+import org.example.control.StopTermPolicy;
+import org.example.model.BlockPostingList;
+import org.example.model.WordData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+// Top-10 multi-word queries over a synthetic index where one word is in every book.
+// A single block per list (blockSize = MAX_VALUE) scores every candidate; with real blocks
+// the block maxima let the search skip the parts of the lists that cannot reach the top 10.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TopKSearchBenchmark {
+
+    private static final int BOOKS = 50_000;
+    private static final long MAX_CACHED_BOOKS = 5_000_000;
+    private static final String QUERY = "the whale captain";
+
+    @Param({"128", "2147483647"})
+    private int blockSize;
+
+    private RankedQueryProcessor allTerms;
+    private RankedQueryProcessor anyTerm;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        Map<String, Map<Integer, WordData>> index = new HashMap<>();
+        index.put("the", postings(random, 1.0, 200));
+        index.put("whale", postings(random, 0.3, 20));
+        index.put("captain", postings(random, 0.05, 10));
+
+        allTerms = new RankedQueryProcessor(index::get, new HashMap<>(), StopTermPolicy.none(),
+                blockSize, 1, MAX_CACHED_BOOKS, 10, true);
+        anyTerm = new RankedQueryProcessor(index::get, new HashMap<>(), StopTermPolicy.none(),
+                blockSize, 1, MAX_CACHED_BOOKS, 10, false);
+
+        // The skipped blocks must not change the results: same top 10 as scoring every book
+        checkAgainstBruteForce(allTerms, index, true);
+        checkAgainstBruteForce(anyTerm, index, false);
+    }
+
+    private static void checkAgainstBruteForce(RankedQueryProcessor processor,
+                                                Map<String, Map<Integer, WordData>> index, boolean matchAll) {
+        List<RankedQueryProcessor.ScoredBook> expected = bruteForce(index, matchAll);
+        List<RankedQueryProcessor.ScoredBook> actual = processor.search(QUERY);
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException("Expected " + expected.size() + " results, got " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i).getBookId() != actual.get(i).getBookId()
+                    || Math.abs(expected.get(i).getScore() - actual.get(i).getScore()) > 1e-9) {
+                throw new IllegalStateException("Result " + i + " differs: book " + expected.get(i).getBookId()
+                        + " (" + expected.get(i).getScore() + ") vs book " + actual.get(i).getBookId()
+                        + " (" + actual.get(i).getScore() + ")");
+            }
+        }
+    }
+
+    // Scores every book with the same sum(occurrences * idf), rarest term first as the processor adds them
+    private static List<RankedQueryProcessor.ScoredBook> bruteForce(Map<String, Map<Integer, WordData>> index,
+                                                                    boolean matchAll) {
+        List<Map<Integer, WordData>> lists = new ArrayList<>();
+        for (String term : QUERY.split(" ")) {
+            lists.add(index.get(term));
+        }
+        lists.sort(Comparator.comparingInt(Map::size));
+        int totalBooks = 0;
+        TreeSet<Integer> books = new TreeSet<>();
+        for (Map<Integer, WordData> list : lists) {
+            totalBooks = Math.max(totalBooks, list.size());
+            books.addAll(list.keySet());
+        }
+
+        List<RankedQueryProcessor.ScoredBook> scored = new ArrayList<>();
+        for (int bookId : books) {
+            double score = 0;
+            boolean inAll = true;
+            for (Map<Integer, WordData> list : lists) {
+                WordData wordData = list.get(bookId);
+                if (wordData == null) {
+                    inAll = false;
+                    continue;
+                }
+                score += wordData.getTotalOccurrences() * Math.log(1.0 + (double) totalBooks / list.size());
+            }
+            if (inAll || !matchAll) {
+                scored.add(new RankedQueryProcessor.ScoredBook(bookId, score));
+            }
+        }
+        scored.sort(Comparator.comparingDouble(RankedQueryProcessor.ScoredBook::getScore).reversed()
+                .thenComparingInt(RankedQueryProcessor.ScoredBook::getBookId));
+        return new ArrayList<>(scored.subList(0, Math.min(10, scored.size())));
+    }
+
+    private static Map<Integer, WordData> postings(Random random, double bookFraction, int maxOccurrences) {
+        Map<Integer, WordData> postings = new HashMap<>();
+        for (int bookId = 1; bookId <= BOOKS; bookId++) {
+            if (random.nextDouble() < bookFraction) {
+                // Mostly low counts with a few books where the word is very frequent
+                int occurrences = random.nextInt(100) == 0 ? 1 + random.nextInt(maxOccurrences) : 1 + random.nextInt(3);
+                postings.put(bookId, new WordData(occurrences));
+            }
+        }
+        return postings;
+    }
+
+    @Benchmark
+    public List<RankedQueryProcessor.ScoredBook> matchAll() {
+        return allTerms.search(QUERY);
+    }
+
+    @Benchmark
+    public List<RankedQueryProcessor.ScoredBook> matchAny() {
+        return anyTerm.search(QUERY);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TopKSearchBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.benchmark;
+
+import org.example.control.MappedTsvIndexReader;
+import org.example.control.TSVIndexLoader;
+import org.example.model.WordData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Time from startup to the answer of a few queries on the Indexer2 datamart:
+// loading every .tsv file first versus mapping only the files of the queried terms.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TsvLookupBenchmark {
+
+    private static final String INDEX_PATH = "datamart/reverse_indexes_indexer2";
+    private static final String[] QUERIES = {"whale", "captain", "ocean", "sea", "ship"};
+
+    @Benchmark
+    public int loadAllThenQuery() throws Exception {
+        Map<String, Map<Integer, WordData>> index = new TSVIndexLoader().loadIndex(INDEX_PATH);
+        int books = 0;
+        for (String query : QUERIES) {
+            Map<Integer, WordData> results = index.get(query);
+            books += results == null ? 0 : results.size();
+        }
+        return books;
+    }
+
+    @Benchmark
+    public int mappedQuery() {
+        MappedTsvIndexReader reader = new MappedTsvIndexReader(INDEX_PATH);
+        int books = 0;
+        for (String query : QUERIES) {
+            Map<Integer, WordData> results = reader.readTerm(query);
+            books += results == null ? 0 : results.size();
+        }
+        return books;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(TsvLookupBenchmark.class.getSimpleName())
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}